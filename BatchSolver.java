@@ -0,0 +1,360 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless batch solver for puzzle corpora in the {@link PuzzleText} format.
+ * <p>
+ * The calling thread streams the input line by line into a bounded queue; a pool of workers
+ * solves the puzzles with a registered {@link Solver} engine; a writer thread takes results from
+ * a bounded reorder buffer and writes them in input order, one line per puzzle: the solution,
+ * {@code unsolvable}, or {@code invalid: <reason>}. Memory use depends only on the thread count
+ * and the buffer sizes, never on the length of the input. Throughput and latency percentiles are
+ * reported periodically on a separate stream.
+ * <p>
+ * Usage: {@code BatchSolver [-t threads] [-e engine] [-r report-seconds] [input|-] [output|-]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class BatchSolver {
+	/** Queued puzzles and reorder slots per worker thread. */
+	private static final int BUFFER_PER_THREAD = 256;
+	/** Default seconds between two progress reports. */
+	private static final int DEFAULT_REPORT_SECONDS = 5;
+	/** Output of a puzzle without solution. */
+	private static final String UNSOLVABLE = "unsolvable";
+	/** Queue entry telling a worker to stop. */
+	private static final Task END = new Task(-1, null);
+
+	/** Name of the engine each worker uses. */
+	private final String engine;
+	/** Number of worker threads. */
+	private final int threads;
+	/** Milliseconds between two progress reports. */
+	private final long reportMillis;
+	/** Stream receiving the progress reports. */
+	private final PrintStream report;
+	/** Solve times of the puzzles finished since the last report. */
+	private final Histogram latencies = new Histogram();
+	/** Puzzles finished so far. */
+	private final AtomicLong finished = new AtomicLong();
+	/** Puzzles without solution so far. */
+	private final AtomicLong unsolvable = new AtomicLong();
+	/** Lines that were not puzzles so far. */
+	private final AtomicLong invalid = new AtomicLong();
+
+	/**
+	 * Creates a batch solver.
+	 * @param engine name of the {@link Solver} engine to use.
+	 * @param threads number of worker threads.
+	 * @param reportMillis milliseconds between two progress reports.
+	 * @param report stream receiving the progress reports.
+	 * @throws IllegalArgumentException if the engine is unknown or the thread count is not positive.
+	 */
+	public BatchSolver(String engine, int threads, long reportMillis, PrintStream report) {
+		SolverRegistry.load(engine);
+		if(threads < 1)
+			throw new IllegalArgumentException("Thread count must be positive: " + threads);
+		this.engine = engine;
+		this.threads = threads;
+		this.reportMillis = reportMillis;
+		this.report = report;
+	}
+
+	/**
+	 * Solves every puzzle of an input and writes the results in input order.
+	 * @param in puzzles, one per line; blank lines and lines starting with {@code #} are skipped.
+	 * @param out receives one line per puzzle.
+	 * @return number of puzzles processed.
+	 * @throws IOException if reading or writing fails.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public long run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+		BlockingQueue<Task> queue = new ArrayBlockingQueue<>(threads * BUFFER_PER_THREAD);
+		ReorderBuffer results = new ReorderBuffer(threads * BUFFER_PER_THREAD);
+		AtomicReference<IOException> writeFailure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				for(String line; (line = results.take()) != null; )
+					if(writeFailure.get() == null) // Keeps draining after a failure so no worker blocks
+						write(out, line, writeFailure);
+				if(writeFailure.get() == null)
+					out.flush();
+			} catch(IOException e) {
+				writeFailure.set(e);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "Batch writer");
+		Thread[] workers = new Thread[threads];
+		for(int i=0; i<threads; i++) {
+			workers[i] = new Thread(() -> work(queue, results, writeFailure), "Batch worker " + i);
+			workers[i].start();
+		}
+		writer.start();
+		Thread reporter = new Thread(this::reportPeriodically, "Batch reporter");
+		reporter.setDaemon(true);
+		reporter.start();
+		long start = System.nanoTime();
+		long seq = 0;
+		try {
+			for(String line; writeFailure.get() == null && (line = in.readLine()) != null; ) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+				queue.put(new Task(seq++, line));
+			}
+		} finally {
+			for(int i=0; i<threads; i++)
+				queue.put(END);
+			for(Thread worker : workers)
+				worker.join();
+			results.close(seq);
+			writer.join();
+			reporter.interrupt();
+		}
+		if(writeFailure.get() != null)
+			throw writeFailure.get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		report.printf("done: %d puzzles in %.1f s, %.0f/s, %d unsolvable, %d invalid%n",
+				seq, seconds, seq / seconds, unsolvable.get(), invalid.get());
+		return seq;
+	}
+
+	/**
+	 * Worker loop: solves queued puzzles until the end marker. After a write failure the
+	 * puzzles still queued are passed on unsolved, as their results are never written.
+	 */
+	private void work(BlockingQueue<Task> queue, ReorderBuffer results, AtomicReference<IOException> writeFailure) {
+		Solver solver = SolverRegistry.load(engine);
+		try {
+			for(Task task; (task = queue.take()) != END; ) {
+				if(writeFailure.get() != null) {
+					results.put(task.seq, ""); // Fills the slot so the writer can drain past it
+					continue;
+				}
+				long t = System.nanoTime();
+				String result = solve(solver, task.line);
+				latencies.record(System.nanoTime() - t);
+				finished.incrementAndGet();
+				results.put(task.seq, result);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Writes one result line, recording the first failure. */
+	private static void write(Writer out, String line, AtomicReference<IOException> writeFailure) {
+		try {
+			out.write(line);
+			out.write('\n');
+		} catch(IOException e) {
+			writeFailure.set(e);
+		}
+	}
+
+	/** Solves one puzzle line and returns its output line. */
+	private String solve(Solver solver, String line) {
+		try {
+			byte[] grid = PuzzleText.parse(line);
+			byte[] solution = solver.solve(BoardSnapshot.of(PuzzleText.sizeOf(grid.length), grid));
+			if(solution != null)
+				return PuzzleText.format(solution);
+			unsolvable.incrementAndGet();
+			return UNSOLVABLE;
+		} catch(IllegalArgumentException e) {
+			invalid.incrementAndGet();
+			return "invalid: " + e.getMessage();
+		} catch(RuntimeException e) { // Keep the output aligned with the input
+			invalid.incrementAndGet();
+			return "invalid: " + e;
+		}
+	}
+
+	/** Reporter loop: prints throughput and latency percentiles until interrupted. */
+	private void reportPeriodically() {
+		long last = 0, lastTime = System.nanoTime();
+		try {
+			while(true) {
+				Thread.sleep(reportMillis);
+				long now = System.nanoTime(), done = finished.get();
+				long[] counts = latencies.drain();
+				report.printf("%d puzzles, %.0f/s, p50 %s, p99 %s, max %s%n", done,
+						(done - last) / ((now - lastTime) / 1e9), format(Histogram.percentile(counts, 0.5)),
+						format(Histogram.percentile(counts, 0.99)), format(Histogram.percentile(counts, 1)));
+				last = done;
+				lastTime = now;
+			}
+		} catch(InterruptedException e) {
+			// Run finished
+		}
+	}
+
+	/** Formats a duration in nanoseconds with a readable unit. */
+	private static String format(long nanos) {
+		if(nanos < 10_000)
+			return nanos + " ns";
+		if(nanos < 10_000_000)
+			return nanos/1000 + " us";
+		return nanos/1_000_000 + " ms";
+	}
+
+	/**
+	 * Runs the batch solver from the command line.
+	 * @param args options, then the input and output paths; {@code -} or nothing means the
+	 *             standard streams.
+	 * @throws IOException if reading or writing fails.
+	 * @throws InterruptedException if the main thread is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String engine = "propagation";
+		int reportSeconds = DEFAULT_REPORT_SECONDS;
+		int i = 0;
+		for(; i+1 < args.length && args[i].startsWith("-") && args[i].length() > 1; i+=2) {
+			switch(args[i]) {
+			case "-t": threads = Integer.parseInt(args[i+1]); break;
+			case "-e": engine = args[i+1]; break;
+			case "-r": reportSeconds = Integer.parseInt(args[i+1]); break;
+			default:
+				System.err.println("Usage: BatchSolver [-t threads] [-e engine] [-r report-seconds] [input|-] [output|-]");
+				System.exit(2);
+			}
+		}
+		String input = i < args.length ? args[i] : "-";
+		String output = i+1 < args.length ? args[i+1] : "-";
+		try(BufferedReader in = input.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII))
+				: Files.newBufferedReader(Paths.get(input), StandardCharsets.US_ASCII);
+			Writer out = output.equals("-")
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))
+				: Files.newBufferedWriter(Paths.get(output), StandardCharsets.US_ASCII)) {
+			new BatchSolver(engine, threads, reportSeconds * 1000L, System.err).run(in, out);
+		}
+	}
+
+	/** Puzzle line with its position in the input. */
+	private static final class Task {
+		/** Position of the puzzle in the input. */
+		private final long seq;
+		/** Puzzle line. */
+		private final String line;
+
+		private Task(long seq, String line) {
+			this.seq = seq;
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Fixed window of result slots that releases results in input order. A worker that runs
+	 * more than the window ahead of the writer waits, which bounds memory.
+	 */
+	private static final class ReorderBuffer {
+		/** Results waiting to be written, indexed by position modulo the window. */
+		private final String[] slots;
+		/** Position of the next result to write. */
+		private long next;
+		/** Number of results, -1 until the input is exhausted. */
+		private long total = -1;
+
+		private ReorderBuffer(int window) {
+			slots = new String[window];
+		}
+
+		/** Stores the result of one position, waiting while it is outside the window. */
+		private synchronized void put(long seq, String result) throws InterruptedException {
+			while(seq >= next + slots.length)
+				wait();
+			slots[(int)(seq % slots.length)] = result;
+			notifyAll();
+		}
+
+		/** Tells the writer how many results there are in all. */
+		private synchronized void close(long total) {
+			this.total = total;
+			notifyAll();
+		}
+
+		/** Takes the next result in input order, null once every result was taken. */
+		private synchronized String take() throws InterruptedException {
+			int slot = (int)(next % slots.length);
+			while(slots[slot] == null) {
+				if(next == total)
+					return null;
+				wait();
+			}
+			String result = slots[slot];
+			slots[slot] = null;
+			next++;
+			notifyAll();
+			return result;
+		}
+	}
+
+	/**
+	 * Log-linear histogram of durations: four buckets per power of two, about 25% resolution,
+	 * recorded without locking.
+	 */
+	private static final class Histogram {
+		/** Bucket counts. */
+		private final AtomicLongArray counts = new AtomicLongArray(256);
+
+		/** Counts one duration. */
+		private void record(long nanos) {
+			counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+		}
+
+		/** Returns the counts recorded since the last drain and starts over. */
+		private long[] drain() {
+			long[] copy = new long[counts.length()];
+			for(int i=0; i<copy.length; i++)
+				copy[i] = counts.getAndSet(i, 0);
+			return copy;
+		}
+
+		/** Returns the bucket of a duration. */
+		private static int bucketOf(long value) {
+			int exp = 63 - Long.numberOfLeadingZeros(value);
+			if(exp < 2)
+				return (int)value;
+			return 4*(exp-1) + (int)((value >>> (exp-2)) & 3);
+		}
+
+		/** Returns the largest duration of a bucket. */
+		private static long upperBound(int bucket) {
+			if(bucket < 4)
+				return bucket;
+			int exp = bucket/4 + 1;
+			return ((4L + bucket%4 + 1) << (exp-2)) - 1;
+		}
+
+		/** Returns the duration below which a fraction of the counted durations fall, 0 if none. */
+		private static long percentile(long[] counts, double fraction) {
+			long total = 0;
+			for(long count : counts)
+				total += count;
+			long rank = Math.max(1, (long)Math.ceil(total * fraction)), seen = 0;
+			for(int i=0; i<counts.length; i++)
+				if((seen += counts[i]) >= rank)
+					return upperBound(i);
+			return 0;
+		}
+	}
+}
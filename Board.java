@@ -1,9 +1,13 @@
 package edu.utep.cs.cs3331.ard.sudoku.model;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
 import edu.utep.cs.cs3331.ard.sudoku.net.JsonBoard;
@@ -17,22 +21,38 @@ import edu.utep.cs.cs3331.ard.sudoku.net.JsonSquare;
  * @version     1.3
  */
 public class Board {
-	/** All coordinates associated with the last selected square. Used for undoing and redoing.	 */
-	protected static List<Integer> selectionHistory;	
+	/** Number of moves each board keeps for undoing and redoing unless configured otherwise. */
+	public static final int DEFAULT_JOURNAL_CAPACITY = 512;
+	/** Background thread computing hints ahead of time for every board. */
+	private static final ExecutorService HINTS = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "Sudoku hints");
+		thread.setDaemon(true);
+		return thread;
+	});
 	/** Dimension of a Sudoku game board. */
 	private int size;
 	/** Dimension of a sub-grid of a Sudoku game board. */
 	private int cellDim;
 	/** Sudoku game board has been solved or not. */
 	private boolean solved;
-	/** Sudoku game board represented as a 2D integer array containing cell values. */
+	/** Packed cell values and states of the Sudoku game board. */
+	private CellStorage cells;
+	/** Sudoku game board as a list of {@link Square} views over {@link #cells}. */
 	private List<Square> grid;
+	/** Views handed out by {@link #grid}, each created on first use and then reused. */
+	private Square[] views;
 	/** x, y coordinate of the last selected square. */
 	private int[] lastSelected;
+	/** Moves made on this board. Used for undoing and redoing. */
+	private MoveJournal journal;
+	/** Latest published snapshot of the board, readable from any thread. */
+	private volatile BoardSnapshot snapshot;
 	/** Square containing the x, y coordinates of the currently selected square. */
 	private Square selected = new Square();		
-	/** Indices of the last set of error squares. */
-	private Set<Integer> lastError;
+	/** Number of solutions of the puzzle's given values, capped at 2; -1 until counted. */
+	private int solutionCount = -1;
+	/** Hint for the current snapshot, null until computed or once the board changes. */
+	private volatile HintEntry hint;
 	
 	/**
 	 * Constructor for the class Board.
@@ -42,44 +62,140 @@ public class Board {
 	 * @see #board
 	 */
 	public Board(JsonBoard jsonBoard) {
-		this.size = jsonBoard.getSize();
-		this.cellDim = (int)Math.sqrt(size); // Should be a perfect square
-		grid = new ArrayList<>(size*size);
-		for(int i=0; i<size*size; i++)
-			grid.add(new Square());
+		this(jsonBoard.getSize());
         for (JsonSquare square : jsonBoard.getSquares()) {
         	int index = square.getX()*size + square.getY();
-        	grid.get(index).setValue(square.getValue());
-        	grid.get(index).setState(State.FIXED);
+        	cells.setValue(index, square.getValue());
+        	cells.addState(index, State.FIXED);
         }
-        lastSelected = new int[] {-1,-1};
-        selectionHistory = new ArrayList<>();
-        for (int i = 0; i < 2; i++) selectionHistory.add(new Integer(-1));
-        lastError = new HashSet<>();
+        snapshot = BoardSnapshot.of(cells, 0);
+        getSolutionCount(); // Check the service's puzzle before anyone plays it
 	}
 	/**
 	 * Constructor for the class Board.
 	 * <p>
-	 * Generates a Sudoku game board.
-	 * @param size9	Default integer value to create a Sudoku game board without the JSON service.
-	 * @see #board
+	 * Generates a Sudoku game board locally, without the JSON service, taking a
+	 * {@link PuzzleGenerator} puzzle from the {@link PuzzlePool#getShared() shared pool}.
+	 * The puzzle has exactly one solution.
+	 * @param size dimension of the Sudoku game board.
+	 * @param difficulty level of the puzzle, from {@link PuzzleGenerator#EASY} to {@link PuzzleGenerator#HARD}.
+	 * @throws IllegalArgumentException if the size or the difficulty is not supported.
 	 */	
 	public Board(int size, int difficulty) {
+		this(size, difficulty, PuzzlePool.getShared());
+	}
+
+	/**
+	 * Constructor for the class Board.
+	 * <p>
+	 * Generates a Sudoku game board locally, taking its puzzle from a pool.
+	 * @param size dimension of the Sudoku game board.
+	 * @param difficulty level of the puzzle, from {@link PuzzleGenerator#EASY} to {@link PuzzleGenerator#HARD}.
+	 * @param pool pool of ready puzzles.
+	 * @throws IllegalArgumentException if the size or the difficulty is not supported.
+	 */
+	public Board(int size, int difficulty, PuzzlePool pool) {
+		this(size);
+		byte[] puzzle = pool.take(size, difficulty);
+		for(int index=0; index<puzzle.length; index++)
+			if(puzzle[index] != 0) {
+				cells.setValue(index, puzzle[index]);
+				cells.addState(index, State.FIXED);
+			}
+		snapshot = BoardSnapshot.of(cells, 0);
+		solutionCount = 1;
+	}
+
+	/**
+	 * Constructor for the class Board.
+	 * <p>
+	 * Loads a Sudoku game board from a {@link PackedPuzzles} record, unpacking its cells
+	 * straight into the board.
+	 * @param record record at its position, which is left unchanged.
+	 * @throws IllegalArgumentException if the record is damaged or its size is not supported.
+	 */
+	public Board(ByteBuffer record) {
+		this(PackedPuzzles.sizeOf(record));
+		PackedPuzzles.decode(record, cells);
+		snapshot = BoardSnapshot.of(cells, 0);
+	}
+
+	/**
+	 * Constructor for the class Board.
+	 * <p>
+	 * Loads a Sudoku game board from a record of a packed puzzle file.
+	 * @param file packed puzzle file.
+	 * @param n number of the record, from 0.
+	 * @throws IOException if reading the record fails.
+	 * @throws IndexOutOfBoundsException if the file has no such record.
+	 * @throws IllegalArgumentException if the record is damaged or its size is not supported.
+	 */
+	public Board(PackedPuzzleReader file, long n) throws IOException {
+		this(file.slice(n));
+	}
+
+	/**
+	 * Constructor for the class Board.
+	 * <p>
+	 * Restores a Sudoku game board from a snapshot, for undo, autosave or solver branching.
+	 * @param snapshot snapshot to restore.
+	 */
+	public Board(BoardSnapshot snapshot) {
+		this(snapshot.getSize());
+		snapshot.copyTo(cells);
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Constructor for the class Board.
+	 * <p>
+	 * Wraps cell storage filled elsewhere, such as by a streaming decoder; the board takes the
+	 * storage over, and its fixed cells are the puzzle's givens.
+	 * @param cells storage of the Sudoku game board.
+	 * @throws IllegalArgumentException if the size of the storage is not supported.
+	 */
+	public Board(CellStorage cells) {
+		this(cells.getSize(), cells);
+		snapshot = BoardSnapshot.of(cells, 0);
+	}
+
+	/**
+	 * Creates an empty Sudoku game board.
+	 * @param size dimension of the Sudoku game board.
+	 * @throws IllegalArgumentException if the size is not a perfect square between 4 and 64.
+	 */
+	private Board(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * Creates a Sudoku game board over cell storage.
+	 * @param size dimension of the Sudoku game board.
+	 * @param storage storage of that size, or null for a new empty one.
+	 * @throws IllegalArgumentException if the size is not a perfect square between 4 and 64.
+	 */
+	private Board(int size, CellStorage storage) {
 		this.size = size;
-		this.cellDim = (int)Math.sqrt(size); 
-				grid = new ArrayList<>(size*size);
-	for(int i=0; i<size*size; i++)
-		grid.add(new Square());
-    for (Square square : this.getGrid()) {
-    	int index = square.getX()*size + square.getY();
-    	grid.get(index).setValue(square.getValue());
-    	grid.get(index).setState(State.FIXED);
-    }
-    lastSelected = new int[] {-1,-1};
-    selectionHistory = new ArrayList<>();
-    for (int i = 0; i < 2; i++) selectionHistory.add(new Integer(-1));
-    lastError = new HashSet<>();
-}	
+		this.cellDim = Geometry.dimOf(size); // Rejects sizes that are not perfect squares up to 64
+		cells = storage != null ? storage : new CellStorage(size, cellDim);
+		views = new Square[cells.getCellCount()];
+		grid = new AbstractList<Square>() {
+			@Override
+			public Square get(int index) {
+				Square view = views[index];
+				if(view == null)
+					views[index] = view = new Square(cells, index);
+				return view;
+			}
+
+			@Override
+			public int size() {
+				return cells.getCellCount();
+			}
+		};
+        lastSelected = new int[] {-1,-1};
+        journal = new MoveJournal(DEFAULT_JOURNAL_CAPACITY);
+	}
 
 	/**
 	 * Getter for {@link #size}.
@@ -113,6 +229,170 @@ public class Board {
 		return grid;
 	}
 	
+	/**
+	 * Getter for {@link #cells}.
+	 * @return {@link #cells}
+	 */
+	public CellStorage getCells() {
+		return cells;
+	}
+	
+	/**
+	 * Determines if any value repeats within a row, column or sub-grid of the board.
+	 * @return true if the board holds at least one conflict, false otherwise.
+	 */
+	public boolean hasConflicts() {
+		return cells.hasConflicts();
+	}
+	
+	/**
+	 * Returns every square currently in conflict with one of its peers.
+	 * @return indices ({@code x*size + y}) of the conflicting squares.
+	 */
+	public int[] getConflicts() {
+		int[] conflicts = new int[size*size];
+		return Arrays.copyOf(conflicts, cells.getConflicts(conflicts));
+	}
+	
+	/**
+	 * Returns the candidates of a cell: the values not yet placed in its row, column or sub-grid.
+	 * @param x x position of the cell space.
+	 * @param y y position of the cell space.
+	 * @return candidate bitmask, bit {@code v-1} set if {@code v} is a candidate; 0 for a filled cell.
+	 */
+	public long getCandidates(int x, int y) {
+		return cells.getCandidates(x*size+y);
+	}
+	
+	/**
+	 * Returns every empty square left with exactly one candidate.
+	 * @return indices ({@code x*size + y}) of the naked singles.
+	 */
+	public int[] getNakedSingles() {
+		int[] singles = new int[size*size];
+		return Arrays.copyOf(singles, cells.getNakedSingles(singles));
+	}
+	
+	/**
+	 * Returns the empty squares ranked by number of candidates, fewest first.
+	 * @return indices ({@code x*size + y}) of the empty squares.
+	 */
+	public int[] getCellsByCandidates() {
+		int[] ranked = new int[size*size];
+		return Arrays.copyOf(ranked, cells.rankByCandidates(ranked));
+	}
+	
+	/**
+	 * Returns the puzzle's given values, leaving out every value the player entered.
+	 * @return cell values indexed {@code x*size + y}, 0 for every square that is not fixed.
+	 */
+	public byte[] getGivens() {
+		byte[] givens = new byte[size*size];
+		for(int i=0; i<givens.length; i++)
+			if(cells.hasState(i, State.FIXED))
+				givens[i] = (byte)cells.getValue(i);
+		return givens;
+	}
+	
+	/**
+	 * Counts the solutions of the puzzle's given values, stopping at the second one.
+	 * The count is taken once and remembered; a board without givens counts as having
+	 * several solutions without searching.
+	 * @return 0 if the puzzle has no solution, 1 if its solution is unique, 2 if it has several.
+	 */
+	public int getSolutionCount() {
+		if(solutionCount < 0) {
+			byte[] givens = getGivens();
+			boolean empty = true;
+			for(int i=0; i<givens.length && empty; i++)
+				empty = givens[i] == 0;
+			solutionCount = empty ? 2 : new PropagationSolver(size).countSolutions(givens, 2);
+		}
+		return solutionCount;
+	}
+	
+	/**
+	 * Determines if the puzzle's given values lead to exactly one solution.
+	 * @return true if the solution is unique, false otherwise.
+	 */
+	public boolean hasUniqueSolution() {
+		return getSolutionCount() == 1;
+	}
+	
+	/**
+	 * Returns the next value the player can deduce from the board as it stands.
+	 * Answers at once if {@link #prefetchHint()} already computed it for the current version.
+	 * @return hint with the cell, value and technique, or null if no value can be deduced.
+	 */
+	public LogicalSolver.Hint getHint() {
+		BoardSnapshot current = snapshot;
+		HintEntry entry = hint;
+		if(entry == null || entry.version != current.getVersion())
+			entry = computeHint(current);
+		return entry.hint;
+	}
+	
+	/**
+	 * Returns the next value the player can deduce without blocking: at once if the hint of
+	 * the current version is known, otherwise from the thread {@link #prefetchHint()} uses.
+	 * @return future of the hint, which is null if no value can be deduced.
+	 */
+	public CompletableFuture<LogicalSolver.Hint> getHintAsync() {
+		BoardSnapshot current = snapshot;
+		HintEntry entry = hint;
+		if(entry != null && entry.version == current.getVersion())
+			return CompletableFuture.completedFuture(entry.hint);
+		return CompletableFuture.supplyAsync(() -> {
+			HintEntry known = hint;                                                            // A queued prefetch may have computed it.
+			return known != null && known.version == current.getVersion() ? known.hint : computeHint(current).hint;
+		}, HINTS);
+	}
+	
+	/**
+	 * Starts computing the hint for the board's current version on a background thread,
+	 * unless it is already known. The result is dropped if the board changes meanwhile.
+	 */
+	public void prefetchHint() {
+		BoardSnapshot current = snapshot;
+		HintEntry entry = hint;
+		if(entry != null && entry.version == current.getVersion())
+			return;
+		HINTS.execute(() -> {
+			if(snapshot == current)
+				computeHint(current);
+		});
+	}
+	
+	/** Computes the hint of a snapshot, caching it if the snapshot is still the current one. */
+	private HintEntry computeHint(BoardSnapshot from) {
+		HintEntry entry = new HintEntry(from.getVersion(), new LogicalSolver(size).hint(from.getValues()));
+		if(snapshot == from)
+			hint = entry;
+		return entry;
+	}
+	
+	/**
+	 * Fills every square that is not fixed with the value of a solution.
+	 * Each change is made as a regular move, so it can be undone.
+	 * @param solution solved cell values indexed {@code x*size + y}.
+	 */
+	public void applySolution(byte[] solution) {
+		for(int i=0; i<solution.length && !solved; i++)
+			if(cells.getValue(i) != solution[i])
+				update(new int[] {i/size, i%size, solution[i]});
+	}
+	
+	/**
+	 * Getter for {@link #snapshot}.
+	 * <p>
+	 * A new snapshot is published after every {@link #update(int[])}; it shares all unchanged
+	 * cells with the previous one and can be read from other threads without locking.
+	 * @return {@link #snapshot}
+	 */
+	public BoardSnapshot getSnapshot() {
+		return snapshot;
+	}
+	
 	/**
 	 * Getter for {@link #lastSelected}.
 	 * @return {@link #lastSelected}
@@ -128,16 +408,15 @@ public class Board {
 	 * @return value of the provided cell space.
 	 */
 	public int getValue(int x, int y) {
-		return grid.get(x*size+y).getValue();
+		return cells.getValue(x*size+y);
 	}
 
 	/**
 	 * Changes the last selected Sudoku square's state to "normal" and the newly selected square's state to "selected."
-	 * Also increments the selectionHistory static variable with the newly selected squares x/y coordinates for future reference.
 	 * @param values x,y values corresponding to the Sudoku game board position.
 	 */
 	public boolean setSelected(int[] values) {
-		if (grid.get(values[0]*size+values[1]).getState().contains(State.FIXED)) return false;	                   // Handle squares with fixed state.
+		if (cells.hasState(values[0]*size+values[1], State.FIXED)) return false;	                   // Handle squares with fixed state.
 		if (solved) return false;                                                                                  // Handle solved with no state change needed.
 		if (lastSelected[0] == values[0] && lastSelected[1] == values[1]) return false;                            // Handle same square being selected again..
 		
@@ -147,20 +426,17 @@ public class Board {
 		selected.setState(State.SELECTED);																		   // Set the sqaure's state to selected.
 		lastSelected[0] = values[0];                                                                               // Update lastSelected array with the values passed.
 		lastSelected[1] = values[1];		
-		selectionHistory.add(new Integer(values[0]));															   // Update the static array's selection history.
-		selectionHistory.add(new Integer(values[1]));
 		return true;
 	}
 	
 	/** 
-	 * Assigns the lastSelected instance variable's first two indices the default value of -1. Also creates a new instance
-	 * of the static variable associated with the selection history. Method call takes place after Sudoku puzzle is solved. 
+	 * Assigns the lastSelected instance variable's first two indices the default value of -1. Also clears
+	 * the board's move journal. Method call takes place after Sudoku puzzle is solved. 
 	 */
 	public void resetBoard() {
 		lastSelected[0] = -1;
 		lastSelected[1] = -1;
-		selectionHistory = new ArrayList<>();
-		for (int i = 0; i < 2; i++) selectionHistory.add(new Integer(-1));
+		journal.clear();
 	}
 	
 	
@@ -169,13 +445,59 @@ public class Board {
 	 * @param values x,y and z values corresponding to the Sudoku game board position and value.
 	 */
 	public void update(int[] values) {
-		if(grid.get(values[0]*size+values[1]).getState().contains(State.FIXED))
-			return;
-		isValidEntry(values);
 		int index = values[0]*size+values[1];
-		Square square = grid.get(index);
-		square.setValue(values[2]);
-		if(values[2]!=0 && isValidSudoku()) {                                                  // Omit checking of board if 0 is input.
+		if(cells.hasState(index, State.FIXED))
+			return;
+		if(cells.getValue(index) != values[2])
+			journal.record(index, cells.getValue(index), values[2]);
+		place(index, values[2]);
+	}
+
+	/**
+	 * Reverts the latest move made on the Sudoku game board.
+	 * @return true if a move was undone, false if there was none or the game is over.
+	 */
+	public boolean undo() {
+		if(solved || !journal.canUndo())
+			return false;
+		int move = journal.undo();
+		place(MoveJournal.cellOf(move), MoveJournal.oldValueOf(move));
+		return true;
+	}
+
+	/**
+	 * Replays the latest undone move on the Sudoku game board.
+	 * @return true if a move was redone, false if there was none or the game is over.
+	 */
+	public boolean redo() {
+		if(solved || !journal.canRedo())
+			return false;
+		int move = journal.redo();
+		place(MoveJournal.cellOf(move), MoveJournal.newValueOf(move));
+		return true;
+	}
+
+	/**
+	 * Getter for {@link #journal}. Its capacity bounds the memory each board spends on undo history.
+	 * @return {@link #journal}
+	 */
+	public MoveJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Places a value, publishes the new snapshot and checks whether the game is over. Placing
+	 * the value a cell already holds changes nothing, so the version and the hint are kept.
+	 * @param index index of the cell.
+	 * @param value value to place, 0 to clear.
+	 */
+	private void place(int index, int value) {
+		if(cells.getValue(index) == value)
+			return;
+		cells.setValue(index, value);
+		snapshot = snapshot.with(index, value);
+		hint = null;
+		if(value!=0 && isValidSudoku()) {                                                      // Omit checking of board if 0 is input.
 			selected.setState(State.NORMAL);
 			resetBoard();
 			solved = true;			
@@ -199,90 +521,39 @@ public class Board {
 	/**
 	 * Determines whether the Sudoku game game is complete and valid.
 	 * <p>
-	 * Uses bitmapping to determine the requirements for a completed Sudoku game board:
+	 * The filled-cell and duplicate counters kept by {@link #cells} rule out an incomplete
+	 * board in O(1) time; a board they report complete is then checked whole by the
+	 * size-specialized kernel of {@link Geometry#isValidGrid(byte[], int)}:
 	 * Only one of each number exists in every row, column, and sub-grid.
-	 * <p>
-	 * Runs in O(n) time.
 	 * @return true of the Sudoku game board is complete and valid, false otherwise.
 	 */
 	private boolean isValidSudoku() {
-		boolean[] bitmap;
-		for(int i=0; i<size; i++) {
-			bitmap = new boolean[size+1];
-			bitmap[0] = true;
-			for(int j=0; j<size; j++)
-				if (!(bitmap[grid.get(i*size+j).getValue()] ^= true))
-					return false;
-		}
-		
-		for(int i=0; i<size; i++) {
-			bitmap = new boolean[size+1];
-			bitmap[0] = true;
-			for(int j=0; j<size; j++)
-				if (!(bitmap[grid.get(j*size+i).getValue()] ^= true))
-					return false;
-		}
-		
-		for(int i=0; i<cellDim; i++)
-			for(int j=0; j<cellDim; j++) {
-				bitmap = new boolean[size+1];
-				bitmap[0] = true;
-				for(int x=i*cellDim; x<i*cellDim+cellDim; x++)
-					for(int y=j*cellDim; y<j*cellDim+cellDim; y++)
-	                   	if (!(bitmap[grid.get(x*size+y).getValue()] ^= true))
-	                   		return false;
-			}
-
-		return true;
+		return cells.isComplete() && Geometry.of(size).isValidGrid(cells.values(), 0);
 	}
 	
 	/**
-	 * Checks if a given input is a valid move for a Sudoku game. Populates {@link #errorSquares} as any are found.
+	 * Checks if a given input is a valid move for a Sudoku game.
 	 * <p>
 	 * A valid move is considered to be inserting a number that does not already exist
-	 * within the same row, column, or sub-grid.
+	 * within the same row, column, or sub-grid. The error squares themselves are flagged
+	 * by {@link #cells} as values are set and cleared.
 	 * @param values x,y and z values corresponding to the Sudoku game board position and value.
 	 * @return true if valid, false otherwise.
 	 */
-	private boolean isValidEntry(int[] values) {
-		lastError.forEach(i -> grid.get(i).removeState(State.ERROR)); // clear out old errors
-		lastError.clear();
-		if(values[2]!=0 ) { // no validity check if value is 0
-			int[] subGrid = {(values[0]/cellDim)*cellDim, (values[1]/cellDim)*cellDim}; // floor indices to nearest multiple of cell dimension
-			int j=-1, x=0, y=0, index=0;
-			boolean error = false;
-			Square square;
-			for(int i=0; i<size; i++) {
-				index = values[0]*size+i;
-				square = grid.get(index); // column
-				if(square.equals(values[2]) ) {
-					square.setState(State.ERROR);
-					lastError.add(index);
-					error = true;
-				}
-				index = i*size+values[1];
-				square = grid.get(index); // row
-				if(square.equals(values [2])) { 
-					square.setState(State.ERROR);
-					lastError.add(index);
-					error = true;
-				}
-				if(i%cellDim==0) j++; 
-				x = i%cellDim+subGrid[0];
-				y = j%cellDim+subGrid[1];
-				index = x*size+y;
-				square = grid.get(index); // sub-grid
-				if(square.equals(values[2])) {
-					square.setState(State.ERROR);
-					lastError.add(index);
-					error = true;
-				}
-			}
-			if(error) return false;
-		}
-		return true;
+	public boolean isValidEntry(int[] values) {
+		return values[2]==0 || !cells.conflicts(values[0]*size+values[1], values[2]); // no validity check if value is 0
 	}
-}
-
 
+	/** Hint together with the board version it was computed for. */
+	private static final class HintEntry {
+		/** Version of the snapshot the hint was computed from. */
+		private final long version;
+		/** Hint, null if no value could be deduced. */
+		private final LogicalSolver.Hint hint;
 
+		private HintEntry(long version, LogicalSolver.Hint hint) {
+			this.version = version;
+			this.hint = hint;
+		}
+	}
+}
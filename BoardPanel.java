@@ -11,7 +11,8 @@ import java.awt.event.MouseEvent;
 import javax.swing.JPanel;
 
 import edu.utep.cs.cs3331.ard.sudoku.model.Board;
-import edu.utep.cs.cs3331.ard.sudoku.model.Square;
+import edu.utep.cs.cs3331.ard.sudoku.model.CellStorage;
+import edu.utep.cs.cs3331.ard.sudoku.model.Geometry;
 import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
 
 /**
@@ -50,6 +51,18 @@ public class BoardPanel extends JPanel {
 	private static final Font BOARD_NUMBER_4 = new Font("Monospaced", Font.BOLD, 25);
 	/** Font of the 9x9 board text. */
 	private static final Font BOARD_NUMBER_9 = new Font("Monospaced", Font.BOLD, 15);
+	/** Font of the 16x16 board text. */
+	private static final Font BOARD_NUMBER_16 = new Font("Monospaced", Font.BOLD, 11);
+	/** Font of the 25x25 board text. */
+	private static final Font BOARD_NUMBER_25 = new Font("Monospaced", Font.BOLD, 9);
+	/** Font of the 36x36 and larger board text. */
+	private static final Font BOARD_NUMBER_LARGE = new Font("Monospaced", Font.PLAIN, 8);
+	/** Text of every square value, so painting does not build strings. */
+	private static final String[] LABELS = new String[Geometry.MAX_SIZE+1];
+	static {
+		for(int i=1; i<LABELS.length; i++)
+			LABELS[i] = String.valueOf(i);
+	}
 
 
     /** Board to be displayed. */
@@ -125,46 +138,35 @@ public class BoardPanel extends JPanel {
         	g.setColor(SELECT_COLOR);
     		g.fillRect(lastIndex[0]*squareSize, lastIndex[1]*squareSize, squareSize, squareSize);
         }
-        int x=0, y=0;
-        for(Square square : board.getGrid()) {
-        	if(square.getState().contains(State.FIXED)) {
-        		g.setColor(FIXED_COLOR);
-        		g.fillRect(x, y, squareSize, squareSize);
-        	}
-        	if(square.getState().contains(State.ERROR)) {
-        		g.setColor(ERROR_COLOR);
-        		g.fillOval(x+squareSize/4, y+squareSize/4,
-	        			squareSize/2, squareSize/2);
-        	}
-        	y += squareSize;
-        	if(y==board.getSize()*squareSize) {
-        		y = 0;
-        		x += squareSize;
+        CellStorage cells = board.getCells();
+        int size = board.getSize();
+        for(int i=0, index=0; i<size; i++) {
+        	for(int j=0; j<size; j++, index++) {
+        		if(cells.hasState(index, State.FIXED)) {
+        			g.setColor(FIXED_COLOR);
+        			g.fillRect(i*squareSize, j*squareSize, squareSize, squareSize);
+        		}
+        		if(cells.hasState(index, State.ERROR)) {
+        			g.setColor(ERROR_COLOR);
+        			g.fillOval(i*squareSize+squareSize/4, j*squareSize+squareSize/4,
+        					squareSize/2, squareSize/2);
+        		}
         	}
-        		
-        }     
+        }
 	    g.setColor(Color.BLACK);                                                            // Fill in numbers with font sizes specific to board size. 
-	    FontMetrics metrics;
-	    if (board.getSize() == 4) {
-        g.setFont(BOARD_NUMBER_4);
-        metrics = g.getFontMetrics(BOARD_NUMBER_4);
-	    }
-	    else {
-	        g.setFont(BOARD_NUMBER_9);
-	        metrics = g.getFontMetrics(BOARD_NUMBER_9);	    	
-	    }             
-        int width = metrics.stringWidth("0")/2;
+	    Font font = fontFor(size);
+	    g.setFont(font);
+	    FontMetrics metrics = g.getFontMetrics(font);
         int height = metrics.getDescent();
         int value;
-        for(int i=0; i<board.getSize(); i++) {
-        	for(int j=0; j<board.getSize(); j++) {
-        		value = board.getValue(i, j);
+        for(int i=0, index=0; i<size; i++) {
+        	for(int j=0; j<size; j++, index++) {
+        		value = cells.getValue(index);
         		if(value!=0)
-        			g.drawString(String.valueOf(value), (i+1)*(squareSize)-squareSize/2-width, (j+1)*(squareSize)-squareSize/2+height);
+        			g.drawString(LABELS[value], (i+1)*(squareSize)-squareSize/2-metrics.stringWidth(LABELS[value])/2, (j+1)*(squareSize)-squareSize/2+height);
         	}
         }      
         g.setColor(new Color(183, 215, 147));                                               // Draw the grid and sub-grids.
-        int size = board.getSize();
         int subGrid = board.getCellDim();
         for(int i = 0; i<size-1; i++) {
         	g.drawLine(squareSize*(i+1), 0, squareSize*(i+1), squareSize*size);             // columns
@@ -176,4 +178,19 @@ public class BoardPanel extends JPanel {
     		g.drawLine(0, squareSize*(i+1), squareSize*size, squareSize*(i+1));             // rows
         }        
     }
+
+    /**
+     * Returns the font used for the numbers of a board size.
+     * @param size dimension of the board.
+     * @return font of the board text.
+     */
+    private static Font fontFor(int size) {
+    	switch (size) {
+    	case 4: return BOARD_NUMBER_4;
+    	case 9: return BOARD_NUMBER_9;
+    	case 16: return BOARD_NUMBER_16;
+    	case 25: return BOARD_NUMBER_25;
+    	default: return BOARD_NUMBER_LARGE;
+    	}
+    }
 }
\ No newline at end of file
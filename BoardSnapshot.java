@@ -0,0 +1,216 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+
+/**
+ * Immutable snapshot of the values and fixed squares of a Sudoku game board.
+ * <p>
+ * Cells are kept in a persistent array: 32-cell byte chunks under a tree of 32-way nodes.
+ * Changing one cell copies only the path from the root to its chunk and shares everything
+ * else with the previous snapshot, so a change costs O(log n) and holding on to a snapshot
+ * costs nothing. Snapshots can be read from any thread without locking.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class BoardSnapshot {
+	/** Bits of a cell index consumed per tree level. */
+	private static final int SHIFT = 5;
+	/** Number of entries in a chunk or node. */
+	private static final int WIDTH = 1 << SHIFT;
+	/** Mask selecting an entry of a chunk or node. */
+	private static final int MASK = WIDTH - 1;
+	/** Cell bit marking a fixed square; values take the low 7 bits. */
+	private static final int FIXED = 0x80;
+
+	/** Dimension of the Sudoku game board. */
+	private final int size;
+	/** Number of times the board changed before this snapshot was taken. */
+	private final long version;
+	/** Shift of the root level, 0 if the root is a chunk. */
+	private final int shift;
+	/** Root of the tree: a {@code byte[]} chunk or an {@code Object[]} node. */
+	private final Object root;
+
+	private BoardSnapshot(int size, long version, int shift, Object root) {
+		this.size = size;
+		this.version = version;
+		this.shift = shift;
+		this.root = root;
+	}
+
+	/**
+	 * Takes a snapshot of a board's cell storage.
+	 * @param cells storage to copy.
+	 * @param version version of the board.
+	 * @return snapshot of the cells.
+	 */
+	public static BoardSnapshot of(CellStorage cells, long version) {
+		int shift = shiftFor(cells.getCellCount());
+		return new BoardSnapshot(cells.getSize(), version, shift, build(pack(cells), 0, shift));
+	}
+
+	/**
+	 * Takes a snapshot of a puzzle, marking every filled cell as fixed.
+	 * @param size dimension of the board.
+	 * @param values cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return snapshot of the puzzle, version 0.
+	 * @throws IllegalArgumentException if the size is not supported or does not match the values.
+	 */
+	public static BoardSnapshot of(int size, byte[] values) {
+		Geometry.dimOf(size);
+		if(values.length != size*size)
+			throw new IllegalArgumentException("Grid does not hold " + size*size + " cells");
+		byte[] cells = new byte[values.length];
+		for(int i=0; i<cells.length; i++)
+			cells[i] = encode(values[i], values[i] != 0);
+		int shift = shiftFor(cells.length);
+		return new BoardSnapshot(size, 0, shift, build(cells, 0, shift));
+	}
+
+	/** Returns the root shift of a tree holding a number of cells. */
+	private static int shiftFor(int count) {
+		int shift = 0;
+		while((WIDTH << shift) < count)
+			shift += SHIFT;
+		return shift;
+	}
+
+	/** Packs the values and fixed flags of a storage into cell bytes. */
+	private static byte[] pack(CellStorage cells) {
+		byte[] packed = new byte[cells.getCellCount()];
+		for(int i=0; i<packed.length; i++)
+			packed[i] = encode(cells.getValue(i), cells.hasState(i, State.FIXED));
+		return packed;
+	}
+
+	/** Builds the subtree covering the packed cells from {@code start} at a given level. */
+	private static Object build(byte[] cells, int start, int shift) {
+		if(shift == 0) {
+			byte[] chunk = new byte[WIDTH];
+			System.arraycopy(cells, start, chunk, 0, Math.min(WIDTH, cells.length - start));
+			return chunk;
+		}
+		int span = 1 << shift;
+		int children = Math.min(WIDTH, (cells.length - start + span - 1) / span);
+		Object[] node = new Object[children];
+		for(int i=0; i<children; i++)
+			node[i] = build(cells, start + i*span, shift - SHIFT);
+		return node;
+	}
+
+	/** Packs a value and fixed flag into a cell byte. */
+	private static byte encode(int value, boolean fixed) {
+		return (byte)(fixed ? value | FIXED : value);
+	}
+
+	/** Returns the packed byte of a cell. */
+	private int cell(int index) {
+		Object node = root;
+		for(int level=shift; level>0; level-=SHIFT)
+			node = ((Object[])node)[(index >>> level) & MASK];
+		return ((byte[])node)[index & MASK] & 0xFF;
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the dimension of a sub-grid.
+	 * @return dimension of a sub-grid.
+	 */
+	public int getCellDim() {
+		return Geometry.dimOf(size);
+	}
+
+	/**
+	 * Getter for {@link #version}.
+	 * @return {@link #version}
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the value in a given cell.
+	 * @param index index ({@code x*size + y}) of the cell.
+	 * @return value of the cell, 0 if empty.
+	 */
+	public int getValue(int index) {
+		return cell(index) & ~FIXED;
+	}
+
+	/**
+	 * Returns the value in a given cell.
+	 * @param x x position of the cell space.
+	 * @param y y position of the cell space.
+	 * @return value of the provided cell space.
+	 */
+	public int getValue(int x, int y) {
+		return getValue(x*size + y);
+	}
+
+	/**
+	 * Copies the values of every cell.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells.
+	 */
+	public byte[] getValues() {
+		byte[] values = new byte[size*size];
+		for(int i=0; i<values.length; i++)
+			values[i] = (byte)getValue(i);
+		return values;
+	}
+
+	/**
+	 * Determines if a cell holds one of the puzzle's given values.
+	 * @param index index ({@code x*size + y}) of the cell.
+	 * @return true if the cell is fixed, false otherwise.
+	 */
+	public boolean isFixed(int index) {
+		return (cell(index) & FIXED) != 0;
+	}
+
+	/**
+	 * Returns a snapshot with one cell changed, sharing every other chunk with this one.
+	 * @param index index ({@code x*size + y}) of the cell.
+	 * @param value new value of the cell, 0 to clear.
+	 * @return snapshot with the next version and the changed cell.
+	 */
+	public BoardSnapshot with(int index, int value) {
+		return new BoardSnapshot(size, version+1, shift, with(root, shift, index, encode(value, isFixed(index))));
+	}
+
+	/** Copies the path to a cell, replacing its byte. */
+	private static Object with(Object node, int level, int index, byte cell) {
+		if(level == 0) {
+			byte[] chunk = ((byte[])node).clone();
+			chunk[index & MASK] = cell;
+			return chunk;
+		}
+		Object[] copy = ((Object[])node).clone();
+		int i = (index >>> level) & MASK;
+		copy[i] = with(copy[i], level - SHIFT, index, cell);
+		return copy;
+	}
+
+	/**
+	 * Copies the snapshot's cells into a board's storage.
+	 * @param cells storage of the same size to fill.
+	 */
+	public void copyTo(CellStorage cells) {
+		int count = size*size;
+		for(int i=0; i<count; i++) {
+			int cell = cell(i);
+			cells.setValue(i, cell & ~FIXED);
+			if((cell & FIXED) != 0)
+				cells.addState(i, State.FIXED);
+			else
+				cells.removeState(i, State.FIXED);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless bulk generator of puzzle corpora.
+ * <p>
+ * Worker threads, each with its own {@link PuzzleGenerator} seeded from the base seed plus the
+ * worker number, take jobs from a shared counter that cycles through every requested size and
+ * level. Generated lines go through a bounded queue to a single writer thread, so memory use
+ * does not depend on the number of puzzles. Each line holds the puzzle and its solution in the
+ * {@link PuzzleText} format, the level, the {@link LogicalSolver} score and the clue count,
+ * separated by commas; with {@code -p} only the puzzle is written, which the other corpus tools
+ * read directly. Throughput is reported per size and level at the end.
+ * <p>
+ * Usage: {@code BulkGenerator [-t threads] [-s seed] [-z sizes] [-l levels] [-n count] [-p] [output|-]}
+ * where sizes and levels are comma-separated lists and count is the number of puzzles of each
+ * size and level.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class BulkGenerator {
+	/** Queued lines per worker thread. */
+	private static final int BUFFER_PER_THREAD = 64;
+	/** Default seconds between two progress reports. */
+	private static final int DEFAULT_REPORT_SECONDS = 5;
+	/** Queue entry telling the writer to stop. */
+	private static final String END = new String("end");
+
+	/** Board sizes to generate. */
+	private final int[] sizes;
+	/** Levels to generate. */
+	private final int[] levels;
+	/** Puzzles of each size and level. */
+	private final long count;
+	/** Number of worker threads. */
+	private final int threads;
+	/** Seed of the first worker; worker {@code i} uses {@code seed + i}. */
+	private final long seed;
+	/** True to write puzzles only, without solution or metadata. */
+	private final boolean puzzlesOnly;
+	/** Milliseconds between two progress reports. */
+	private final long reportMillis;
+	/** Stream receiving the reports. */
+	private final PrintStream report;
+	/** Next job to claim; job {@code j} is of pair {@code j % pairs}. */
+	private final AtomicLong nextJob = new AtomicLong();
+	/** Puzzles generated so far. */
+	private final AtomicLong finished = new AtomicLong();
+	/** Puzzles generated per pair. */
+	private final AtomicLongArray pairCounts;
+	/** Thread time spent generating per pair, in nanoseconds. */
+	private final AtomicLongArray pairNanos;
+
+	/**
+	 * Creates a bulk generator.
+	 * @param sizes board sizes to generate.
+	 * @param levels levels to generate, from {@link PuzzleGenerator#EASY} to {@link PuzzleGenerator#HARD}.
+	 * @param count puzzles of each size and level.
+	 * @param threads number of worker threads.
+	 * @param seed seed of the first worker.
+	 * @param puzzlesOnly true to write puzzles only.
+	 * @param reportMillis milliseconds between two progress reports.
+	 * @param report stream receiving the reports.
+	 * @throws IllegalArgumentException if a size or level is not supported, or a count is not positive.
+	 */
+	public BulkGenerator(int[] sizes, int[] levels, long count, int threads, long seed, boolean puzzlesOnly,
+			long reportMillis, PrintStream report) {
+		for(int size : sizes)
+			if(size > PuzzleText.MAX_SIZE)
+				throw new IllegalArgumentException("No text form for " + size + "x" + size + " boards");
+			else
+				Geometry.dimOf(size);
+		for(int level : levels)
+			if(level < PuzzleGenerator.EASY || level > PuzzleGenerator.HARD)
+				throw new IllegalArgumentException("Unknown difficulty level: " + level);
+		if(sizes.length == 0 || levels.length == 0 || count < 1)
+			throw new IllegalArgumentException("Nothing to generate");
+		if(threads < 1)
+			throw new IllegalArgumentException("Thread count must be positive: " + threads);
+		this.sizes = sizes.clone();
+		this.levels = levels.clone();
+		this.count = count;
+		this.threads = threads;
+		this.seed = seed;
+		this.puzzlesOnly = puzzlesOnly;
+		this.reportMillis = reportMillis;
+		this.report = report;
+		pairCounts = new AtomicLongArray(sizes.length*levels.length);
+		pairNanos = new AtomicLongArray(sizes.length*levels.length);
+	}
+
+	/**
+	 * Generates every puzzle and writes one line per puzzle.
+	 * @param out receives the lines.
+	 * @return number of puzzles generated.
+	 * @throws IOException if writing fails.
+	 * @throws InterruptedException if the calling thread is interrupted.
+	 */
+	public long run(Writer out) throws IOException, InterruptedException {
+		BlockingQueue<String> queue = new ArrayBlockingQueue<>(threads * BUFFER_PER_THREAD);
+		AtomicReference<IOException> writeFailure = new AtomicReference<>();
+		out.write(puzzlesOnly ? "# puzzle\n" : "# puzzle,solution,level,score,clues\n");
+		Thread writer = new Thread(() -> {
+			try {
+				for(String line; (line = queue.take()) != END; )
+					if(writeFailure.get() == null) // Keeps draining after a failure so no worker blocks
+						write(out, line, writeFailure);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "Bulk writer");
+		Thread[] workers = new Thread[threads];
+		for(int i=0; i<threads; i++) {
+			long workerSeed = seed + i;
+			workers[i] = new Thread(() -> work(workerSeed, queue, writeFailure), "Bulk worker " + i);
+			workers[i].start();
+		}
+		writer.start();
+		Thread reporter = new Thread(this::reportPeriodically, "Bulk reporter");
+		reporter.setDaemon(true);
+		reporter.start();
+		long start = System.nanoTime();
+		try {
+			for(Thread worker : workers)
+				worker.join();
+		} finally {
+			queue.put(END);
+			writer.join();
+			reporter.interrupt();
+		}
+		if(writeFailure.get() != null)
+			throw writeFailure.get();
+		out.flush();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		summarize(seconds);
+		return finished.get();
+	}
+
+	/** Worker loop: claims jobs until every puzzle is claimed. */
+	private void work(long workerSeed, BlockingQueue<String> queue, AtomicReference<IOException> writeFailure) {
+		PuzzleGenerator[] generators = new PuzzleGenerator[sizes.length];
+		LogicalSolver[] raters = new LogicalSolver[sizes.length];
+		int pairs = sizes.length*levels.length;
+		try {
+			for(long job; (job = nextJob.getAndIncrement()) < count*pairs && writeFailure.get() == null; ) {
+				int pair = (int)(job % pairs), s = pair / levels.length, level = levels[pair % levels.length];
+				if(generators[s] == null) {
+					generators[s] = new PuzzleGenerator(sizes[s], workerSeed*31 + sizes[s]);
+					raters[s] = new LogicalSolver(sizes[s]);
+				}
+				long t = System.nanoTime();
+				byte[] puzzle = generators[s].generate(level);
+				String line = puzzlesOnly ? PuzzleText.format(puzzle) : describe(raters[s], puzzle, generators[s].getLastLevel());
+				pairNanos.addAndGet(pair, System.nanoTime() - t);
+				pairCounts.incrementAndGet(pair);
+				finished.incrementAndGet();
+				queue.put(line);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Writes one line, recording the first failure. */
+	private static void write(Writer out, String line, AtomicReference<IOException> writeFailure) {
+		try {
+			out.write(line);
+			out.write('\n');
+		} catch(IOException e) {
+			writeFailure.set(e);
+		}
+	}
+
+	/**
+	 * Returns the full line of a puzzle; generated puzzles are solved by logic alone. The level
+	 * is the one the puzzle reached, which on large boards may be below the level asked for.
+	 */
+	private static String describe(LogicalSolver rater, byte[] puzzle, int level) {
+		LogicalSolver.Rating rating = rater.rate(puzzle);
+		int clues = 0;
+		for(byte value : puzzle)
+			if(value != 0)
+				clues++;
+		return PuzzleText.format(puzzle) + ',' + PuzzleText.format(rater.getValues()) + ','
+				+ level + ',' + (rating.isSolved() ? rating.getScore() : -1) + ',' + clues;
+	}
+
+	/** Reporter loop: prints overall throughput until interrupted. */
+	private void reportPeriodically() {
+		long last = 0, lastTime = System.nanoTime();
+		try {
+			while(true) {
+				Thread.sleep(reportMillis);
+				long now = System.nanoTime(), done = finished.get();
+				report.printf("%d puzzles, %.0f/s%n", done, (done - last) / ((now - lastTime) / 1e9));
+				last = done;
+				lastTime = now;
+			}
+		} catch(InterruptedException e) {
+			// Run finished
+		}
+	}
+
+	/** Prints the throughput of every size and level, then overall. */
+	private void summarize(double seconds) {
+		long busy = 0;
+		report.printf("%-7s %5s %10s %15s%n", "size", "level", "puzzles", "puzzles/s/thread");
+		for(int pair=0; pair<pairCounts.length(); pair++) {
+			int size = sizes[pair / levels.length];
+			busy += pairNanos.get(pair);
+			report.printf("%-7s %5d %10d %15.1f%n", size + "x" + size, levels[pair % levels.length], pairCounts.get(pair),
+					pairCounts.get(pair) / (pairNanos.get(pair) / 1e9));
+		}
+		report.printf("done: %d puzzles in %.1f s, %.1f/s on %d threads, %.2f threads busy on average%n",
+				finished.get(), seconds, finished.get() / seconds, threads, busy / 1e9 / seconds);
+	}
+
+	/** Parses a comma-separated list of integers. */
+	private static int[] parseList(String list) {
+		String[] items = list.split(",");
+		int[] values = new int[items.length];
+		for(int i=0; i<items.length; i++)
+			values[i] = Integer.parseInt(items[i].trim());
+		return values;
+	}
+
+	/**
+	 * Runs the bulk generator from the command line.
+	 * @param args options, then the output path; {@code -} or nothing means standard output.
+	 * @throws IOException if writing fails.
+	 * @throws InterruptedException if the main thread is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		int[] sizes = {9};
+		int[] levels = {PuzzleGenerator.EASY, PuzzleGenerator.MEDIUM, PuzzleGenerator.HARD};
+		long count = 1000;
+		boolean puzzlesOnly = false;
+		int i = 0;
+		for(; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+			if(args[i].equals("-p")) {
+				puzzlesOnly = true;
+				continue;
+			}
+			if(i+1 == args.length)
+				usage();
+			String value = args[i+1];
+			switch(args[i++]) {
+			case "-t": threads = Integer.parseInt(value); break;
+			case "-s": seed = Long.parseLong(value); break;
+			case "-z": sizes = parseList(value); break;
+			case "-l": levels = parseList(value); break;
+			case "-n": count = Long.parseLong(value); break;
+			default: usage();
+			}
+		}
+		String output = i < args.length ? args[i] : "-";
+		try(Writer out = output.equals("-")
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))
+				: Files.newBufferedWriter(Paths.get(output), StandardCharsets.US_ASCII)) {
+			new BulkGenerator(sizes, levels, count, threads, seed, puzzlesOnly, DEFAULT_REPORT_SECONDS * 1000L, System.err).run(out);
+		}
+	}
+
+	/** Prints the usage and exits. */
+	private static void usage() {
+		System.err.println("Usage: BulkGenerator [-t threads] [-s seed] [-z sizes] [-l levels] [-n count] [-p] [output|-]");
+		System.exit(2);
+	}
+}
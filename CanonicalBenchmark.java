@@ -0,0 +1,112 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Dedupes a puzzle corpus by {@link Canonicalizer} hash and reports the throughput.
+ * <p>
+ * Every 4x4 and 9x9 puzzle of the corpus is read with {@link MappedCorpus}, canonicalized and
+ * its 128-bit hash added to an open-addressing set; other sizes, and puzzles whose givens
+ * conflict, are skipped. The report gives puzzles per second, the distinct and duplicate
+ * counts, and the time spent on hashing alone.
+ * <p>
+ * Usage: {@code CanonicalBenchmark <corpus> [max-puzzles]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class CanonicalBenchmark {
+
+	private CanonicalBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args corpus path, then optionally the maximum number of puzzles.
+	 * @throws Exception if the corpus cannot be read.
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.err.println("Usage: CanonicalBenchmark <corpus> [max-puzzles]");
+			System.exit(2);
+		}
+		long max = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+		Canonicalizer[] canonicalizers = new Canonicalizer[Canonicalizer.MAX_SIZE + 1];
+		HashSet128 seen = new HashSet128();
+		byte[] grid = new byte[PuzzleText.MAX_SIZE*PuzzleText.MAX_SIZE];
+		long puzzles = 0, duplicates = 0, skipped = 0, hashNanos = 0;
+		long start = System.nanoTime();
+		try(MappedCorpus corpus = new MappedCorpus(Paths.get(args[0]))) {
+			for(MappedCorpus.Chunk chunk : corpus.split(1))
+				for(int cells; puzzles < max && (cells = chunk.next(grid)) > 0; ) {
+					int size = PuzzleText.sizeOf(cells);
+					if(size > Canonicalizer.MAX_SIZE) {
+						skipped++;
+						continue;
+					}
+					if(canonicalizers[size] == null)
+						canonicalizers[size] = new Canonicalizer(size);
+					byte[] canonical;
+					try {
+						canonical = canonicalizers[size].canonicalize(Arrays.copyOf(grid, cells));
+					} catch(IllegalArgumentException e) { // Conflicting givens have no canonical form
+						skipped++;
+						continue;
+					}
+					long t = System.nanoTime();
+					long[] hash = Canonicalizer.hash128(canonical);
+					hashNanos += System.nanoTime() - t;
+					if(!seen.add(hash[0], hash[1]))
+						duplicates++;
+					puzzles++;
+				}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d puzzles in %.2f s, %.0f puzzles/s (%.2f us each), %d distinct, %d duplicates, %d skipped%n",
+				puzzles, seconds, puzzles / seconds, seconds * 1e6 / Math.max(1, puzzles), seen.size(), duplicates, skipped);
+		System.out.printf("hashing alone: %.0f ns per puzzle%n", hashNanos / (double)Math.max(1, puzzles));
+	}
+
+	/** Open-addressing set of 128-bit hashes, 16 bytes per slot. */
+	private static final class HashSet128 {
+		/** Low and high halves of the stored hashes, both 0 for a free slot. */
+		private long[] low = new long[1 << 16], high = new long[1 << 16];
+		/** Number of stored hashes. */
+		private int size;
+
+		/** Adds a hash, returning false if it was already present. */
+		private boolean add(long lo, long hi) {
+			if(lo == 0 && hi == 0)
+				hi = 1; // Keeps the free-slot marker free
+			if(2*(size+1) > low.length)
+				grow();
+			int mask = low.length - 1;
+			for(int i=(int)lo & mask; ; i=(i+1) & mask) {
+				if(low[i] == 0 && high[i] == 0) {
+					low[i] = lo;
+					high[i] = hi;
+					size++;
+					return true;
+				}
+				if(low[i] == lo && high[i] == hi)
+					return false;
+			}
+		}
+
+		/** Doubles the table. */
+		private void grow() {
+			long[] oldLow = low, oldHigh = high;
+			low = new long[2*oldLow.length];
+			high = new long[2*oldHigh.length];
+			size = 0;
+			for(int i=0; i<oldLow.length; i++)
+				if(oldLow[i] != 0 || oldHigh[i] != 0)
+					add(oldLow[i], oldHigh[i]);
+		}
+
+		private int size() {
+			return size;
+		}
+	}
+}
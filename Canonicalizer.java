@@ -0,0 +1,441 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.Arrays;
+
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonBoard;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonSquare;
+
+/**
+ * Canonical form of puzzles under the symmetries of Sudoku, for telling equivalent puzzles apart.
+ * <p>
+ * Two puzzles are equivalent when one turns into the other by permuting bands, stacks, rows
+ * within a band or columns within a stack, by transposing, and by relabeling values. The
+ * canonical form of a puzzle is the smallest of all its equivalent grids when read row by row,
+ * empty cells counting as 0; equivalent puzzles, and only those, share it. Puzzles must be
+ * free of conflicts, as the column orders are looked up by value; a value repeated in a row,
+ * column or sub-grid is rejected. Its 64-bit and
+ * 128-bit hashes serve as dedupe and cache keys.
+ * <p>
+ * The smallest grid is built one row at a time. Candidate column orders are kept together with
+ * the value labels they imply, and every row keeps only the candidates and source rows that
+ * give the smallest row so far; the first non-empty row is looked up in a table of column
+ * orders by the pattern of its empty cells. Column orders are enumerated, so only 4x4 and 9x9 boards are
+ * supported. A canonicalizer is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class Canonicalizer {
+	/** Largest board dimension supported. */
+	public static final int MAX_SIZE = 9;
+	/** Seeds of the two hash lanes. */
+	private static final long SEED_LOW = 0x243F6A8885A308D3L, SEED_HIGH = 0x13198A2E03707344L;
+	/** Shared tables indexed by sub-grid dimension. */
+	private static final Tables[] TABLES = new Tables[4];
+
+	/** Dimension of the boards. */
+	private final int size;
+	/** Dimension of a sub-grid. */
+	private final int cellDim;
+	/** Tables of the board dimension. */
+	private final Tables tables;
+	/** The grid being canonicalized, then its transpose. */
+	private final byte[][] oriented = new byte[2][];
+	/** Empty-cell mask of every row of both orientations: bit {@code j} is set if column {@code j} is empty. */
+	private final int[][] emptyMasks = new int[2][];
+	/** Values met in every row, then column, then sub-grid while a grid is loaded, as bit masks. */
+	private final int[] seen;
+	/** Current and next level of the search. */
+	private Level level = new Level(), next = new Level();
+	/** Value labels after the last call to {@link #labelRow}. */
+	private long lastLabels;
+
+	/**
+	 * Creates a canonicalizer for one board size.
+	 * @param size dimension of the boards, 4 or 9.
+	 * @throws IllegalArgumentException if the size is not supported.
+	 */
+	public Canonicalizer(int size) {
+		if(size > MAX_SIZE)
+			throw new IllegalArgumentException("Canonical forms are computed up to " + MAX_SIZE + "x" + MAX_SIZE + " only");
+		cellDim = Geometry.dimOf(size);
+		this.size = size;
+		tables = tablesOf(cellDim);
+		seen = new int[3*size];
+		for(int o=0; o<2; o++) {
+			oriented[o] = new byte[size*size];
+			emptyMasks[o] = new int[size];
+		}
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the canonical form of a board's puzzle, ignoring the values the player entered.
+	 * @param board board whose givens to canonicalize.
+	 * @return canonical cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the board is not of this size or its givens conflict.
+	 */
+	public byte[] canonicalize(Board board) {
+		return canonicalize(board.getGivens());
+	}
+
+	/**
+	 * Returns the canonical form of a puzzle from the web service.
+	 * @param board board whose squares to canonicalize.
+	 * @return canonical cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the board is not of this size, or a square is out of
+	 *                                  range or conflicts with another.
+	 */
+	public byte[] canonicalize(JsonBoard board) {
+		if(board.getSize() != size)
+			throw new IllegalArgumentException("Board is not " + size + "x" + size);
+		byte[] grid = new byte[size*size];
+		for(JsonSquare square : board.getSquares()) {
+			if(square.getX() < 0 || square.getX() >= size || square.getY() < 0 || square.getY() >= size)
+				throw new IllegalArgumentException("Square " + square.getX() + "," + square.getY() + " is off the board");
+			grid[square.getX()*size + square.getY()] = (byte)square.getValue();
+		}
+		return canonicalize(grid);
+	}
+
+	/**
+	 * Returns the canonical form of a puzzle.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return canonical cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the grid has the wrong length, a value out of range
+	 *                                  or a value repeated in a row, column or sub-grid.
+	 */
+	public byte[] canonicalize(byte[] grid) {
+		load(grid);
+		byte[] canonical = new byte[size*size];
+		level.clear();
+		level.addState(0, 0, -1, true);
+		level.addState(1, 0, -1, true);
+		for(int k=0; k<size; k++)
+			unpack(nextLevel(k), canonical, k);
+		return canonical;
+	}
+
+	/**
+	 * Returns the 64-bit hash of a canonical form.
+	 * @param canonical canonical cell values.
+	 * @return hash of the canonical form.
+	 */
+	public static long hash64(byte[] canonical) {
+		return hash(canonical, SEED_LOW);
+	}
+
+	/**
+	 * Returns the 128-bit hash of a canonical form.
+	 * @param canonical canonical cell values.
+	 * @return low and high 64 bits of the hash.
+	 */
+	public static long[] hash128(byte[] canonical) {
+		return new long[] {hash(canonical, SEED_LOW), hash(canonical, SEED_HIGH)};
+	}
+
+	/** Hashes the cell values eight at a time with a multiply-rotate mix and a final avalanche. */
+	private static long hash(byte[] values, long seed) {
+		long h = seed ^ values.length * 0x9E3779B97F4A7C15L;
+		long word = 0;
+		for(int i=0; i<values.length; i++) {
+			word = word << 8 | (values[i] & 0xFF);
+			if((i & 7) == 7 || i == values.length-1) {
+				h = Long.rotateLeft(h ^ word * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+				word = 0;
+			}
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ h >>> 33;
+	}
+
+	/** Copies a conflict-free grid and its transpose and computes their empty-cell masks. */
+	private void load(byte[] grid) {
+		if(grid.length != size*size)
+			throw new IllegalArgumentException("Grid does not hold " + size*size + " cells");
+		Arrays.fill(seen, 0);
+		for(int x=0; x<size; x++)
+			for(int y=0; y<size; y++) {
+				byte value = grid[x*size + y];
+				if(value < 0 || value > size)
+					throw new IllegalArgumentException("Value " + value + " at " + x + "," + y + " is out of range");
+				if(value != 0) {
+					int bit = 1 << value, box = 2*size + x/cellDim*cellDim + y/cellDim;
+					if(((seen[x] | seen[size + y] | seen[box]) & bit) != 0)
+						throw new IllegalArgumentException("Value " + value + " at " + x + "," + y + " repeats in its row, column or sub-grid");
+					seen[x] |= bit;
+					seen[size + y] |= bit;
+					seen[box] |= bit;
+				}
+				oriented[0][x*size + y] = value;
+				oriented[1][y*size + x] = value;
+			}
+		for(int o=0; o<2; o++)
+			for(int r=0; r<size; r++) {
+				int mask = 0;
+				for(int j=0; j<size; j++)
+					if(oriented[o][r*size + j] == 0)
+						mask |= 1 << j;
+				emptyMasks[o][r] = mask;
+			}
+	}
+
+	/**
+	 * Extends every kept state by one row, keeping the source rows and column orders that give
+	 * the smallest row. A free state, whose rows so far are all empty, still allows every column
+	 * order, so its row and candidates come from the first-row table.
+	 * @param k index of the row being built.
+	 * @return smallest row, packed four bits per cell with the first cell highest.
+	 */
+	private long nextLevel(int k) {
+		long best = Long.MAX_VALUE;
+		int full = (1 << size) - 1;
+		for(int s=0; s<level.states; s++) // Free rows cost a lookup; their best bounds the rest
+			if(level.free[s])
+				for(int rows=allowedRows(s, k); rows != 0; rows &= rows-1)
+					best = Math.min(best, tables.firstRows[emptyMasks[level.orient[s]][Integer.numberOfTrailingZeros(rows)]]);
+		next.clear();
+		for(int s=0; s<level.states; s++) {
+			int o = level.orient[s], used = level.used[s];
+			int lastEmptyBand = -1;
+			for(int rows=allowedRows(s, k); rows != 0; rows &= rows-1) {
+				int r = Integer.numberOfTrailingZeros(rows), band = r / cellDim;
+				if(emptyMasks[o][r] == full) { // Empty rows of one band lead to the same forms
+					if(band == lastEmptyBand)
+						continue;
+					lastEmptyBand = band;
+				}
+				int mask = emptyMasks[o][r];
+				if(level.free[s]) {
+					long row = tables.firstRows[mask];
+					if(row > best)
+						continue;
+					if(row < best) {
+						best = row;
+						next.clear();
+					}
+					next.addState(o, used | 1 << r, band, mask == full);
+					if(mask != full)
+						for(int p : tables.firstRowPerms[mask]) {
+							labelRow(o, r, p, 0, Long.MAX_VALUE);
+							next.addCandidate(p, lastLabels);
+						}
+					continue;
+				}
+				boolean added = false;
+				for(int c=level.from[s]; c<level.from[s+1]; c++) {
+					long row = labelRow(o, r, level.perm[c], level.labels[c], best);
+					if(row > best)
+						continue;
+					if(row < best) {
+						best = row;
+						next.clear();
+						added = false;
+					}
+					if(!added) {
+						next.addState(o, used | 1 << r, band, false);
+						added = true;
+					}
+					next.addCandidate(level.perm[c], lastLabels);
+				}
+			}
+		}
+		swap();
+		return best;
+	}
+
+	/** Returns the source rows a state may take as row {@code k}, one bit per row: bands stay together. */
+	private int allowedRows(int s, int k) {
+		int used = level.used[s], bandRows = (1 << cellDim) - 1;
+		if(k % cellDim != 0)
+			return bandRows << level.band[s]*cellDim & ~used;
+		int rows = 0;
+		for(int band=0; band<cellDim; band++)
+			if((used >>> band*cellDim & bandRows) == 0)
+				rows |= bandRows << band*cellDim;
+		return rows;
+	}
+
+	/**
+	 * Reads one source row through a column order, labeling values in order of appearance.
+	 * @param labels label of every value so far, four bits per value; the lowest four bits count
+	 *               the labels given. The extended labels are left in {@link #lastLabels}.
+	 * @param bound row to beat; reading stops once the row is sure to be larger.
+	 * @return the labeled row, packed four bits per cell with the first cell highest, or
+	 *         {@link Long#MAX_VALUE} if it is larger than {@code bound}.
+	 */
+	private long labelRow(int o, int r, int perm, long labels, long bound) {
+		byte[] grid = oriented[o];
+		byte[] perms = tables.perms;
+		int base = r*size, p = perm*size, count = (int)(labels & 15);
+		long row = 0;
+		for(int j=0; j<size; j++) {
+			int value = grid[base + perms[p + j]], label = 0;
+			if(value != 0) {
+				label = (int)(labels >>> 4*value) & 15;
+				if(label == 0) {
+					label = ++count;
+					labels |= (long)label << 4*value;
+				}
+			}
+			row = row << 4 | label;
+			if(row > bound >>> 4*(size-1-j))
+				return Long.MAX_VALUE;
+		}
+		lastLabels = labels & ~15L | count;
+		return row;
+	}
+
+	/** Makes the next level current. */
+	private void swap() {
+		Level done = level;
+		level = next;
+		next = done;
+	}
+
+	/** Writes a packed row into a grid. */
+	private void unpack(long row, byte[] grid, int k) {
+		for(int j=size-1; j>=0; j--, row >>>= 4)
+			grid[k*size + j] = (byte)(row & 15);
+	}
+
+	/** Returns the shared tables of a sub-grid dimension. */
+	private static Tables tablesOf(int cellDim) {
+		synchronized(TABLES) {
+			if(TABLES[cellDim] == null)
+				TABLES[cellDim] = new Tables(cellDim);
+			return TABLES[cellDim];
+		}
+	}
+
+	/** States of one level of the search, with their candidate column orders. */
+	private static final class Level {
+		/** Number of states. */
+		private int states;
+		/** Number of candidates. */
+		private int candidates;
+		/** Orientation of each state: 0 for the grid, 1 for its transpose. */
+		private int[] orient = new int[16];
+		/** Source rows used by each state, one bit per row. */
+		private int[] used = new int[16];
+		/** Source band of the output band each state is filling. */
+		private int[] band = new int[16];
+		/** True for a state whose rows are all empty so far, which allows every column order. */
+		private boolean[] free = new boolean[16];
+		/** First candidate of each state; entry {@link #states} ends the last one. */
+		private int[] from = new int[17];
+		/** Column order of each candidate. */
+		private int[] perm = new int[64];
+		/** Value labels of each candidate. */
+		private long[] labels = new long[64];
+
+		private void clear() {
+			states = candidates = 0;
+			from[0] = 0;
+		}
+
+		private void addState(int o, int usedRows, int sourceBand, boolean allFree) {
+			if(states+1 == orient.length) {
+				orient = Arrays.copyOf(orient, 2*orient.length);
+				used = Arrays.copyOf(used, 2*used.length);
+				band = Arrays.copyOf(band, 2*band.length);
+				free = Arrays.copyOf(free, 2*free.length);
+				from = Arrays.copyOf(from, 2*from.length + 1);
+			}
+			orient[states] = o;
+			used[states] = usedRows;
+			band[states] = sourceBand;
+			free[states] = allFree;
+			from[states] = candidates;
+			from[++states] = candidates;
+		}
+
+		private void addCandidate(int p, long l) {
+			if(candidates == perm.length) {
+				perm = Arrays.copyOf(perm, 2*perm.length);
+				labels = Arrays.copyOf(labels, 2*labels.length);
+			}
+			perm[candidates] = p;
+			labels[candidates++] = l;
+			from[states] = candidates;
+		}
+	}
+
+	/** Column orders of one board dimension, and the first-row table. */
+	private static final class Tables {
+		/** Column orders keeping every stack together: entry {@code p*size + j} is the source of column {@code j}. */
+		private final byte[] perms;
+		/** Smallest first row for each empty-cell mask. */
+		private final long[] firstRows;
+		/** Column orders giving {@link #firstRows} for each empty-cell mask. */
+		private final int[][] firstRowPerms;
+
+		private Tables(int cellDim) {
+			int size = cellDim*cellDim;
+			int[][] within = permutations(cellDim);
+			int count = within.length;
+			for(int i=0; i<cellDim; i++)
+				count *= within.length;
+			perms = new byte[count*size];
+			for(int p=0; p<count; p++) {
+				int rest = p;
+				int[] stacks = within[rest % within.length];
+				rest /= within.length;
+				for(int s=0; s<cellDim; s++) {
+					int[] cols = within[rest % within.length];
+					rest /= within.length;
+					for(int c=0; c<cellDim; c++)
+						perms[p*size + s*cellDim + c] = (byte)(stacks[s]*cellDim + cols[c]);
+				}
+			}
+			firstRows = new long[1 << size];
+			firstRowPerms = new int[1 << size][];
+			int[] ties = new int[count];
+			for(int mask=0; mask<firstRows.length; mask++) {
+				long best = Long.MAX_VALUE;
+				int n = 0;
+				for(int p=0; p<count; p++) {
+					long row = 0;
+					int label = 0;
+					for(int j=0; j<size; j++)
+						row = row << 4 | ((mask >>> perms[p*size + j] & 1) != 0 ? 0 : ++label);
+					if(row < best) {
+						best = row;
+						n = 0;
+					}
+					if(row == best)
+						ties[n++] = p;
+				}
+				firstRows[mask] = best;
+				firstRowPerms[mask] = Arrays.copyOf(ties, n);
+			}
+		}
+
+		/** Returns every order of {@code 0..n-1}. */
+		private static int[][] permutations(int n) {
+			if(n == 1)
+				return new int[][] {{0}};
+			int[][] shorter = permutations(n-1);
+			int[][] all = new int[shorter.length*n][];
+			int k = 0;
+			for(int[] p : shorter)
+				for(int at=0; at<n; at++) {
+					int[] q = new int[n];
+					for(int i=0, j=0; i<n; i++)
+						q[i] = i == at ? n-1 : p[j++];
+					all[k++] = q;
+				}
+			return all;
+		}
+	}
+}
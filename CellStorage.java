@@ -0,0 +1,449 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.Arrays;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+
+/**
+ * Packed primitive storage for the cells of a Sudoku game board.
+ * <p>
+ * Cells are addressed by index {@code x*size + y}. Each cell keeps its value in a byte,
+ * its {@link State}s in a flag byte (one bit per state ordinal) and its candidates in a
+ * bitmask where bit {@code v-1} stands for value {@code v}.
+ * <p>
+ * Every row, column and sub-grid also keeps a count and an occupancy mask of the values
+ * placed in it, and the storage counts filled cells and duplicate placements. All of them
+ * are updated as each value is set or cleared, so move checks and solved-board detection
+ * are O(1).
+ * <p>
+ * The counts also drive the {@link State#ERROR} flag: a cell is in error while its value
+ * appears more than once in its row, column or sub-grid. When a cell changes, only the
+ * peers whose conflict status can change are refreshed, and only in the units where a
+ * count crossed between one and two.
+ * <p>
+ * Every empty cell of a board also keeps its candidates: the values not yet placed in its
+ * row, column or sub-grid. Setting or clearing a value only touches the candidates of
+ * that cell and its peers.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class CellStorage {
+	/** Shared empty tables of the one-cell storage of a detached {@link Square}, which tracks no units. */
+	private static final long[] NO_MASKS = new long[0];
+	/** Shared empty counts of the one-cell storage of a detached {@link Square}. */
+	private static final byte[] NO_COUNTS = new byte[0];
+	/** Dimension of the Sudoku game board. */
+	private final int size;
+	/** Dimension of a sub-grid of the Sudoku game board. */
+	private final int cellDim;
+	/** Cell values, 0 for an empty cell. */
+	private final byte[] values;
+	/** Cell states, one bit per {@link State#ordinal()}. */
+	private final byte[] flags;
+	/** Layout tables of the board, null for the one-cell storage of a detached {@link Square}. */
+	private final Geometry geometry;
+	/** Cell candidate bitmasks, 0 for filled cells. */
+	private final long[] candidates;
+	/** Occupancy masks of the values placed in each row. */
+	private final long[] rowMask;
+	/** Occupancy masks of the values placed in each column. */
+	private final long[] colMask;
+	/** Occupancy masks of the values placed in each sub-grid. */
+	private final long[] boxMask;
+	/** Number of times each value is placed in each row, indexed by {@code x*size + value-1}. */
+	private final byte[] rowCount;
+	/** Number of times each value is placed in each column, indexed by {@code y*size + value-1}. */
+	private final byte[] colCount;
+	/** Number of times each value is placed in each sub-grid, indexed by {@code box*size + value-1}. */
+	private final byte[] boxCount;
+	/** Number of non-empty cells. */
+	private int filled;
+	/** Number of placements that repeat a value already present in a row, column or sub-grid. */
+	private int duplicates;
+
+	/**
+	 * Creates empty storage for a board of the given dimension.
+	 * Every cell starts empty in the {@link State#NORMAL} state. The one-cell storage of a
+	 * detached {@link Square} holds only its value and states.
+	 * @param size dimension of the board.
+	 * @param cellDim dimension of a sub-grid of the board.
+	 */
+	public CellStorage(int size, int cellDim) {
+		this.size = size;
+		this.cellDim = cellDim;
+		values = new byte[size*size];
+		flags = new byte[size*size];
+		Arrays.fill(flags, flag(State.NORMAL));
+		geometry = size > 1 ? Geometry.of(size) : null;
+		if(geometry == null) {
+			candidates = rowMask = colMask = boxMask = NO_MASKS;
+			rowCount = colCount = boxCount = NO_COUNTS;
+			return;
+		}
+		candidates = new long[size*size];
+		rowMask = new long[size];
+		colMask = new long[size];
+		boxMask = new long[size];
+		rowCount = new byte[size*size];
+		colCount = new byte[size*size];
+		boxCount = new byte[size*size];
+		Arrays.fill(candidates, geometry.getFullMask());
+	}
+
+	/**
+	 * Returns the flag bit used for a state.
+	 * @param state state to convert.
+	 * @return flag bit of the state.
+	 */
+	static byte flag(State state) {
+		return (byte)(1 << state.ordinal());
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter for {@link #cellDim}.
+	 * @return {@link #cellDim}
+	 */
+	public int getCellDim() {
+		return cellDim;
+	}
+
+	/**
+	 * Returns the number of cells held by this storage.
+	 * @return number of cells.
+	 */
+	public int getCellCount() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the value of a cell.
+	 * @param index index of the cell.
+	 * @return value of the cell, 0 if empty.
+	 */
+	public int getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Assigns the value of a cell, updating the unit counts, occupancy masks, counters
+	 * and the {@link State#ERROR} flags of the cell and its affected peers.
+	 * @param index index of the cell.
+	 * @param value value to assign, 0 to clear.
+	 */
+	public void setValue(int index, int value) {
+		int old = values[index];
+		if(old == value)
+			return;
+		if(geometry == null) { // The one cell of a detached square has no units to track
+			values[index] = (byte)value;
+			filled += (value != 0 ? 1 : 0) - (old != 0 ? 1 : 0);
+			return;
+		}
+		int x = index / size, y = index % size, box = boxOf(x, y);
+		values[index] = (byte)value;
+		if(old != 0) {
+			int v = old-1;
+			if(--rowCount[x*size+v] == 0)
+				rowMask[x] &= ~(1L << v);
+			else {
+				duplicates--;
+				if(rowCount[x*size+v] == 1) refreshRow(x, old);
+			}
+			if(--colCount[y*size+v] == 0)
+				colMask[y] &= ~(1L << v);
+			else {
+				duplicates--;
+				if(colCount[y*size+v] == 1) refreshCol(y, old);
+			}
+			if(--boxCount[box*size+v] == 0)
+				boxMask[box] &= ~(1L << v);
+			else {
+				duplicates--;
+				if(boxCount[box*size+v] == 1) refreshBox(box, old);
+			}
+			filled--;
+		}
+		if(value != 0) {
+			int v = value-1;
+			if(rowCount[x*size+v]++ == 0)
+				rowMask[x] |= 1L << v;
+			else {
+				duplicates++;
+				if(rowCount[x*size+v] == 2) refreshRow(x, value);
+			}
+			if(colCount[y*size+v]++ == 0)
+				colMask[y] |= 1L << v;
+			else {
+				duplicates++;
+				if(colCount[y*size+v] == 2) refreshCol(y, value);
+			}
+			if(boxCount[box*size+v]++ == 0)
+				boxMask[box] |= 1L << v;
+			else {
+				duplicates++;
+				if(boxCount[box*size+v] == 2) refreshBox(box, value);
+			}
+			filled++;
+		}
+		refresh(index);
+		if(geometry != null)
+			updateCandidates(index, old, value);
+	}
+
+	/**
+	 * Updates the candidates of a changed cell and its empty peers.
+	 * @param index index of the changed cell.
+	 * @param old previous value of the cell.
+	 * @param value new value of the cell.
+	 */
+	private void updateCandidates(int index, int old, int value) {
+		int peerCount = geometry.getPeerCount();
+		if(old != 0) { // a value came off the board, so peers may regain it
+			for(int k=0; k<peerCount; k++) {
+				int peer = geometry.peer(index, k);
+				if(values[peer] == 0)
+					candidates[peer] = free(peer);
+			}
+		}
+		else {
+			long clear = ~(1L << (value-1));
+			for(int k=0; k<peerCount; k++)
+				candidates[geometry.peer(index, k)] &= clear;
+		}
+		candidates[index] = value == 0 ? free(index) : 0;
+	}
+
+	/**
+	 * Returns the values not placed in any unit of a cell.
+	 * @param index index of the cell.
+	 * @return candidate bitmask of the cell.
+	 */
+	private long free(int index) {
+		return geometry.getFullMask()
+				& ~(rowMask[geometry.rowOf(index)] | colMask[geometry.colOf(index)] | boxMask[geometry.boxOf(index)]);
+	}
+
+	/**
+	 * Sets or clears the {@link State#ERROR} flag of a cell from the unit counts.
+	 * @param index index of the cell.
+	 */
+	private void refresh(int index) {
+		int value = values[index];
+		if(value != 0) {
+			int x = index / size, y = index % size, v = value-1;
+			if(rowCount[x*size+v] > 1 || colCount[y*size+v] > 1 || boxCount[boxOf(x, y)*size+v] > 1) {
+				flags[index] |= flag(State.ERROR);
+				return;
+			}
+		}
+		flags[index] &= ~flag(State.ERROR);
+	}
+
+	/** Refreshes the cells of a row holding a value whose count just crossed between one and two. */
+	private void refreshRow(int x, int value) {
+		for(int i=x*size; i<x*size+size; i++)
+			if(values[i] == value)
+				refresh(i);
+	}
+
+	/** Refreshes the cells of a column holding a value whose count just crossed between one and two. */
+	private void refreshCol(int y, int value) {
+		for(int i=y; i<values.length; i+=size)
+			if(values[i] == value)
+				refresh(i);
+	}
+
+	/** Refreshes the cells of a sub-grid holding a value whose count just crossed between one and two. */
+	private void refreshBox(int box, int value) {
+		int x0 = (box/cellDim)*cellDim, y0 = (box%cellDim)*cellDim;
+		for(int x=x0; x<x0+cellDim; x++)
+			for(int i=x*size+y0; i<x*size+y0+cellDim; i++)
+				if(values[i] == value)
+					refresh(i);
+	}
+
+	/**
+	 * Determines if a value is already present in the row, column or sub-grid of a cell.
+	 * The cell's own value counts as present.
+	 * @param index index of the cell.
+	 * @param value value to test, must be non-zero.
+	 * @return true if placing the value would repeat it in one of the cell's units.
+	 */
+	public boolean conflicts(int index, int value) {
+		int x = index / size, y = index % size;
+		return ((rowMask[x] | colMask[y] | boxMask[boxOf(x, y)]) & (1L << (value-1))) != 0;
+	}
+
+	/**
+	 * Determines if every cell is filled and no value repeats within a row, column or sub-grid.
+	 * <p>
+	 * Runs in O(1) time.
+	 * @return true if the board is complete and valid, false otherwise.
+	 */
+	public boolean isComplete() {
+		return filled == values.length && duplicates == 0;
+	}
+
+	/**
+	 * Determines if any value repeats within a row, column or sub-grid.
+	 * @return true if the board holds at least one conflict, false otherwise.
+	 */
+	public boolean hasConflicts() {
+		return duplicates != 0;
+	}
+
+	/**
+	 * Collects every cell currently in conflict with one of its peers.
+	 * @param into array receiving the cell indices, at least {@link #getCellCount()} long.
+	 * @return number of indices written to {@code into}.
+	 */
+	public int getConflicts(int[] into) {
+		int count = 0;
+		if(duplicates != 0)
+			for(int i=0; i<flags.length; i++)
+				if((flags[i] & flag(State.ERROR)) != 0)
+					into[count++] = i;
+		return count;
+	}
+
+	/**
+	 * Getter for {@link #filled}.
+	 * @return {@link #filled}
+	 */
+	public int getFilled() {
+		return filled;
+	}
+
+	/**
+	 * Returns the occupancy mask of a row.
+	 * @param x index of the row.
+	 * @return mask of the values placed in the row.
+	 */
+	public long getRowMask(int x) {
+		return rowMask[x];
+	}
+
+	/**
+	 * Returns the occupancy mask of a column.
+	 * @param y index of the column.
+	 * @return mask of the values placed in the column.
+	 */
+	public long getColMask(int y) {
+		return colMask[y];
+	}
+
+	/**
+	 * Returns the occupancy mask of a sub-grid.
+	 * @param box index of the sub-grid, counted row by row.
+	 * @return mask of the values placed in the sub-grid.
+	 */
+	public long getBoxMask(int box) {
+		return boxMask[box];
+	}
+
+	/**
+	 * Returns the index of the sub-grid containing a cell.
+	 * @param x x position of the cell.
+	 * @param y y position of the cell.
+	 * @return index of the sub-grid, counted row by row.
+	 */
+	public int boxOf(int x, int y) {
+		return (x/cellDim)*cellDim + y/cellDim;
+	}
+
+	/**
+	 * Returns the state flags of a cell.
+	 * @param index index of the cell.
+	 * @return state flags of the cell.
+	 */
+	public int getFlags(int index) {
+		return flags[index];
+	}
+
+	/**
+	 * Determines if a cell is in a given state.
+	 * @param index index of the cell.
+	 * @param state state to test.
+	 * @return true if the cell is in the state, false otherwise.
+	 */
+	public boolean hasState(int index, State state) {
+		return (flags[index] & flag(state)) != 0;
+	}
+
+	/**
+	 * Adds a state to a cell.
+	 * @param index index of the cell.
+	 * @param state state to add.
+	 */
+	public void addState(int index, State state) {
+		flags[index] |= flag(state);
+	}
+
+	/**
+	 * Removes a state from a cell. Removing an absent state has no effect.
+	 * @param index index of the cell.
+	 * @param state state to remove.
+	 */
+	public void removeState(int index, State state) {
+		flags[index] &= ~flag(state);
+	}
+
+	/**
+	 * Returns the candidate bitmask of a cell.
+	 * @param index index of the cell.
+	 * @return candidate bitmask, bit {@code v-1} set if {@code v} is a candidate; always 0 for a detached square.
+	 */
+	public long getCandidates(int index) {
+		return geometry == null ? 0 : candidates[index];
+	}
+
+	/**
+	 * Collects every empty cell left with exactly one candidate.
+	 * @param into array receiving the cell indices, at least {@link #getCellCount()} long.
+	 * @return number of indices written to {@code into}.
+	 */
+	public int getNakedSingles(int[] into) {
+		int count = 0;
+		for(int i=0; i<candidates.length; i++)
+			if(values[i] == 0 && Long.bitCount(candidates[i]) == 1)
+				into[count++] = i;
+		return count;
+	}
+
+	/**
+	 * Ranks the empty cells by their number of candidates, fewest first. Cells with the
+	 * same number of candidates keep board order, and cells with none come first.
+	 * @param into array receiving the cell indices, at least {@link #getCellCount()} long.
+	 * @return number of indices written to {@code into}.
+	 */
+	public int rankByCandidates(int[] into) {
+		int[] start = new int[size+2];
+		for(int i=0; i<candidates.length; i++)
+			if(values[i] == 0)
+				start[Long.bitCount(candidates[i])+1]++;
+		for(int c=1; c<start.length; c++)
+			start[c] += start[c-1];
+		for(int i=0; i<candidates.length; i++)
+			if(values[i] == 0)
+				into[start[Long.bitCount(candidates[i])]++] = i;
+		return start[size];
+	}
+
+	/**
+	 * Direct access to the packed cell values, for engines that scan the whole board.
+	 * The array must not be written to outside of this class.
+	 * @return packed cell values.
+	 */
+	byte[] values() {
+		return values;
+	}
+}
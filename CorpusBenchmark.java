@@ -0,0 +1,143 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the parsing throughput of {@link MappedCorpus} with reading lines through a
+ * {@link BufferedReader} and {@link PuzzleText#parse(CharSequence)}.
+ * <p>
+ * Usage: {@code CorpusBenchmark <corpus> [threads] [rounds]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class CorpusBenchmark {
+
+	private CorpusBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args corpus path, then optionally the number of threads for the parallel
+	 *             mapped reader and the number of rounds.
+	 * @throws Exception if the corpus cannot be read.
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.err.println("Usage: CorpusBenchmark <corpus> [threads] [rounds]");
+			System.exit(2);
+		}
+		Path path = Paths.get(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		long bytes = Files.size(path);
+		for(int round=0; round<rounds; round++) {
+			time("buffered reader", bytes, () -> buffered(path));
+			time("mapped, grid", bytes, () -> mapped(path));
+			time("mapped, storage", bytes, () -> mappedStorage(path));
+			time("mapped, " + threads + " threads", bytes, () -> mappedParallel(path, threads));
+		}
+	}
+
+	/** Body of one measurement; returns the number of puzzles read. */
+	private interface Run {
+		long run() throws Exception;
+	}
+
+	/** Times one run and prints its throughput. */
+	private static void time(String name, long bytes, Run run) throws Exception {
+		long start = System.nanoTime();
+		long puzzles = run.run();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-20s %10d puzzles %10.0f puzzles/s %8.1f MB/s%n", name, puzzles, puzzles / seconds, bytes / seconds / 1e6);
+	}
+
+	/** Reads every puzzle as a String and parses it. */
+	private static long buffered(Path path) throws IOException {
+		long puzzles = 0, sum = 0;
+		try(BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+			for(String line; (line = in.readLine()) != null; ) {
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+				sum += PuzzleText.parse(line)[0];
+				puzzles++;
+			}
+		}
+		return checked(puzzles, sum);
+	}
+
+	/** Parses every puzzle from one mapped chunk into a grid. */
+	private static long mapped(Path path) throws IOException {
+		long puzzles = 0, sum = 0;
+		byte[] grid = new byte[PuzzleText.MAX_SIZE*PuzzleText.MAX_SIZE];
+		try(MappedCorpus corpus = new MappedCorpus(path)) {
+			for(MappedCorpus.Chunk chunk : corpus.split(1))
+				while(chunk.next(grid) > 0) {
+					sum += grid[0];
+					puzzles++;
+				}
+		}
+		return checked(puzzles, sum);
+	}
+
+	/** Parses every puzzle from one mapped chunk into a cell storage sized by the first puzzle. */
+	private static long mappedStorage(Path path) throws IOException {
+		long puzzles = 0, sum = 0;
+		byte[] grid = new byte[PuzzleText.MAX_SIZE*PuzzleText.MAX_SIZE];
+		try(MappedCorpus corpus = new MappedCorpus(path)) {
+			List<MappedCorpus.Chunk> chunks = corpus.split(1);
+			int cells = chunks.isEmpty() ? 0 : chunks.get(0).next(grid);
+			if(cells == 0)
+				return 0;
+			int size = PuzzleText.sizeOf(cells);
+			CellStorage storage = new CellStorage(size, Geometry.dimOf(size));
+			puzzles++;
+			for(MappedCorpus.Chunk chunk : chunks)
+				while(chunk.next(storage)) {
+					sum += storage.getValue(0);
+					puzzles++;
+				}
+		}
+		return checked(puzzles, sum);
+	}
+
+	/** Parses every puzzle with one thread per mapped chunk. */
+	private static long mappedParallel(Path path, int threads) throws Exception {
+		AtomicLong puzzles = new AtomicLong(), sum = new AtomicLong();
+		try(MappedCorpus corpus = new MappedCorpus(path)) {
+			List<MappedCorpus.Chunk> chunks = corpus.split(threads);
+			Thread[] readers = new Thread[chunks.size()];
+			for(int i=0; i<readers.length; i++) {
+				MappedCorpus.Chunk chunk = chunks.get(i);
+				readers[i] = new Thread(() -> {
+					byte[] grid = new byte[PuzzleText.MAX_SIZE*PuzzleText.MAX_SIZE];
+					long n = 0, s = 0;
+					while(chunk.next(grid) > 0) {
+						s += grid[0];
+						n++;
+					}
+					puzzles.addAndGet(n);
+					sum.addAndGet(s);
+				});
+				readers[i].start();
+			}
+			for(Thread reader : readers)
+				reader.join();
+		}
+		return checked(puzzles.get(), sum.get());
+	}
+
+	/** Keeps the checksum alive so the parsing cannot be optimized away. */
+	private static long checked(long puzzles, long sum) {
+		if(sum == Long.MIN_VALUE)
+			System.out.println(sum);
+		return puzzles;
+	}
+}
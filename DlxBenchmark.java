@@ -0,0 +1,103 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measures sustained solves per second of {@link DlxSolver}, with {@link PropagationSolver}
+ * on the same puzzles for comparison.
+ * <p>
+ * Puzzles are read in {@link PuzzleText} format, one per line, and grouped by size; without a
+ * corpus, ten well-known hard 9x9 puzzles of 17 to 20 clues are used. Each engine solves the
+ * puzzles of a group in a loop for a fixed time after a warm-up of the same length, and every
+ * solution is checked with {@link Geometry#isValidGrid(byte[], int)}.
+ * <p>
+ * Usage: {@code DlxBenchmark [corpus|-] [seconds]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class DlxBenchmark {
+	/** Corpus used when none is given. */
+	private static final String[] HARD = {
+			"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+			"52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+			"6.....8.3.4.7.................5.4.7.3..2.....1.6.......2.....5.....8.6......1....",
+			"48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+			"....14....3....2...7..........9...3.6.1.............8.2.....1.4....5.6.....7.8...",
+			"......52..8.4......3...9...5.1...6..2..7........3.....6...1..........7.4.......3.",
+			"6.2.5.........3.4..........43...8....1....2........7..5..27...........81...6.....",
+			".524.........7.1..............8.2...3.....6...9.5.....1.6.3...........897........",
+			"6.2.5.........4.3..........43...8....1....2........7..5..27...........81...6.....",
+			".923.........8.1...........1.7.4...........658.........6.5.2...4.....7.....9....."};
+
+	private DlxBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args optionally the corpus path, {@code -} for the built-in puzzles, then the
+	 *             seconds each engine runs per size.
+	 * @throws Exception if the corpus cannot be read.
+	 */
+	public static void main(String[] args) throws Exception {
+		List<String> lines = new ArrayList<>();
+		if(args.length > 0 && !args[0].equals("-"))
+			try(BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.US_ASCII)) {
+				for(String line; (line = in.readLine()) != null; ) {
+					line = line.trim();
+					if(!line.isEmpty() && !line.startsWith("#"))
+						lines.add(line);
+				}
+			}
+		else
+			lines.addAll(Arrays.asList(HARD));
+		long nanos = (long)((args.length > 1 ? Double.parseDouble(args[1]) : 2) * 1e9);
+		Map<Integer, List<byte[]>> bySize = new TreeMap<>();
+		for(String line : lines) {
+			byte[] grid = PuzzleText.parse(line);
+			bySize.computeIfAbsent(PuzzleText.sizeOf(grid.length), size -> new ArrayList<>()).add(grid);
+		}
+		for(Map.Entry<Integer, List<byte[]>> group : bySize.entrySet()) {
+			int size = group.getKey();
+			List<byte[]> puzzles = group.getValue();
+			Geometry geometry = Geometry.of(size);
+			DlxSolver dlx = new DlxSolver(size);
+			PropagationSolver propagation = new PropagationSolver(size);
+			System.out.printf("%dx%d, %d puzzles%n", size, size, puzzles.size());
+			for(int round=0; round<2; round++) { // The first round warms up the JIT
+				String phase = round == 0 ? " (warm-up)" : "";
+				run("dlx" + phase, puzzles, geometry, nanos, dlx::solve);
+				run("propagation" + phase, puzzles, geometry, nanos, propagation::solve);
+			}
+		}
+	}
+
+	/** Solver of a raw grid. */
+	private interface Solve {
+		byte[] solve(byte[] grid);
+	}
+
+	/** Solves the puzzles in a loop for a time and prints the rate. */
+	private static void run(String name, List<byte[]> puzzles, Geometry geometry, long nanos, Solve solve) {
+		long solves = 0, unsolved = 0;
+		long start = System.nanoTime(), elapsed;
+		do {
+			for(byte[] puzzle : puzzles) {
+				byte[] solution = solve.solve(puzzle);
+				if(solution == null || !geometry.isValidGrid(solution, 0))
+					unsolved++;
+				solves++;
+			}
+		} while((elapsed = System.nanoTime() - start) < nanos);
+		System.out.printf("  %-24s %10.0f solves/s %10.1f us each %6d unsolved%n", name, solves / (elapsed / 1e9),
+				elapsed / 1e3 / solves, unsolved);
+	}
+}
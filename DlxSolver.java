@@ -0,0 +1,320 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dancing-links (Algorithm X) exact-cover solver for Sudoku game boards of one size.
+ * <p>
+ * The exact-cover matrix has one row per (cell, value) pair and one column per constraint:
+ * every cell filled, and every value once per row, column and sub-grid. The whole matrix is
+ * linked once into primitive node arrays when the solver is created; each solve covers the
+ * given values, searches with an explicit stack, then uncovers everything in reverse so the
+ * arena is ready for the next puzzle. Repeated solving therefore allocates nothing beyond the
+ * solutions it returns. A solver is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class DlxSolver {
+	/** Dimension of the boards solved. */
+	private final int size;
+	/** Number of cells of the boards solved. */
+	private final int cellCount;
+	/** Index of the first row node; row {@code r} owns nodes {@code rowBase + 4*r} to {@code rowBase + 4*r + 3}. */
+	private final int rowBase;
+	/** Left links. */
+	private final int[] left;
+	/** Right links. */
+	private final int[] right;
+	/** Up links. */
+	private final int[] up;
+	/** Down links. */
+	private final int[] down;
+	/** Column header of each node. */
+	private final int[] column;
+	/** Number of rows still linked into each column header. */
+	private final int[] count;
+	/** Row node chosen at each search level, then the given rows above them. */
+	private final int[] stack;
+	/** Puzzle being solved. */
+	private byte[] puzzle;
+
+	/**
+	 * Creates a solver and links its exact-cover matrix.
+	 * @param size dimension of the boards to solve.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public DlxSolver(int size) {
+		Geometry geometry = Geometry.of(size);
+		this.size = size;
+		cellCount = size*size;
+		int columns = 4*cellCount;
+		int rows = cellCount*size;
+		rowBase = 1 + columns;
+		int nodes = rowBase + 4*rows;
+		left = new int[nodes];
+		right = new int[nodes];
+		up = new int[nodes];
+		down = new int[nodes];
+		column = new int[nodes];
+		count = new int[rowBase];
+		stack = new int[2*cellCount];
+		for(int c=0; c<=columns; c++) { // node 0 is the root header
+			left[c] = c == 0 ? columns : c-1;
+			right[c] = c == columns ? 0 : c+1;
+			up[c] = down[c] = column[c] = c;
+		}
+		for(int cell=0; cell<cellCount; cell++) {
+			int x = geometry.rowOf(cell), y = geometry.colOf(cell), box = geometry.boxOf(cell);
+			for(int v=0; v<size; v++) {
+				int node = rowBase + 4*(cell*size + v);
+				link(node, 1 + cell);
+				link(node+1, 1 + cellCount + x*size + v);
+				link(node+2, 1 + 2*cellCount + y*size + v);
+				link(node+3, 1 + 3*cellCount + box*size + v);
+				for(int k=0; k<4; k++) {
+					left[node+k] = node + (k+3)%4;
+					right[node+k] = node + (k+1)%4;
+				}
+			}
+		}
+	}
+
+	/** Appends a node to the bottom of a column. */
+	private void link(int node, int col) {
+		column[node] = col;
+		up[node] = up[col];
+		down[node] = col;
+		down[up[col]] = node;
+		up[col] = node;
+		count[col]++;
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Finds the first solution of a board's current values.
+	 * @param board board to solve; it is not modified.
+	 * @return solved cell values indexed {@code x*size + y}, or null if there is no solution.
+	 */
+	public byte[] solve(Board board) {
+		return solve(board.getCells().values());
+	}
+
+	/**
+	 * Finds the first solution of a puzzle.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return solved cell values, or null if there is no solution.
+	 */
+	public byte[] solve(byte[] grid) {
+		byte[] solution = new byte[cellCount];
+		return search(grid, 1, solution, null) == 1 ? solution : null;
+	}
+
+	/**
+	 * Finds the solutions of a puzzle, up to a limit.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit maximum number of solutions to return.
+	 * @return solutions found, in search order.
+	 */
+	public List<byte[]> solveAll(byte[] grid, int limit) {
+		List<byte[]> solutions = new ArrayList<>();
+		search(grid, limit, null, solutions);
+		return solutions;
+	}
+
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	public int countSolutions(byte[] grid, int limit) {
+		return search(grid, limit, null, null);
+	}
+
+	/**
+	 * Covers the givens, runs the search and restores the matrix.
+	 * @param grid puzzle to solve.
+	 * @param limit number of solutions after which to stop.
+	 * @param first receives the first solution, may be null.
+	 * @param all receives a copy of every solution, may be null.
+	 * @return number of solutions found.
+	 */
+	private int search(byte[] grid, int limit, byte[] first, List<byte[]> all) {
+		if(grid.length != cellCount)
+			throw new IllegalArgumentException("Grid does not hold " + cellCount + " cells");
+		int givens = 0, found = 0;
+		boolean consistent = true;
+		for(int cell=0; cell<cellCount && consistent; cell++) {
+			int value = grid[cell];
+			if(value == 0)
+				continue;
+			int node = rowBase + 4*(cell*size + value-1);
+			for(int k=0; k<4 && consistent; k++) // a covered column means a clashing given
+				consistent = right[left[column[node+k]]] == column[node+k];
+			if(consistent) {
+				select(node);
+				stack[cellCount + givens++] = node;
+			}
+		}
+		if(consistent) {
+			puzzle = grid;
+			found = search(limit, first, all);
+			puzzle = null;
+		}
+		while(givens > 0)
+			unselect(stack[cellCount + --givens]);
+		return found;
+	}
+
+	/** Iterative Algorithm X over the uncovered columns. */
+	private int search(int limit, byte[] first, List<byte[]> all) {
+		int found = 0, level = 0;
+		boolean descend = true;
+		while(true) {
+			if(descend) {
+				if(right[0] == 0) { // every constraint satisfied
+					if(found == 0 && first != null)
+						record(level, first);
+					if(all != null)
+						record(level, all);
+					if(++found >= limit) {
+						while(level > 0)
+							unselect(stack[--level]);
+						return found;
+					}
+					descend = false;
+					continue;
+				}
+				int col = right[0], best = count[col];
+				for(int c=right[col]; c!=0 && best>1; c=right[c])
+					if(count[c] < best) {
+						col = c;
+						best = count[c];
+					}
+				if(best == 0) {
+					descend = false;
+					continue;
+				}
+				cover(col);
+				stack[level] = down[col];
+				choose(stack[level++]);
+			}
+			else {
+				if(level == 0)
+					return found;
+				int node = stack[--level];
+				unchoose(node);
+				node = down[node];
+				if(node == column[node]) {
+					uncover(node);
+					continue;
+				}
+				stack[level] = node;
+				choose(stack[level++]);
+				descend = true;
+			}
+		}
+	}
+
+	/** Records the current partial selection as a new solution. */
+	private void record(int level, List<byte[]> all) {
+		byte[] solution = new byte[cellCount];
+		record(level, solution);
+		all.add(solution);
+	}
+
+	/** Writes the givens and the chosen rows into a solution. */
+	private void record(int level, byte[] solution) {
+		System.arraycopy(puzzle, 0, solution, 0, cellCount);
+		for(int i=0; i<level; i++)
+			place(stack[i], solution);
+	}
+
+	/** Writes the (cell, value) of a row node into a solution. */
+	private void place(int node, byte[] solution) {
+		int row = (node - rowBase) >> 2;
+		solution[row / size] = (byte)(row % size + 1);
+	}
+
+	/** Covers the other columns of a row whose own column is already covered. */
+	private void choose(int node) {
+		for(int j=right[node]; j!=node; j=right[j])
+			cover(column[j]);
+	}
+
+	/** Reverts {@link #choose(int)}. */
+	private void unchoose(int node) {
+		for(int j=left[node]; j!=node; j=left[j])
+			uncover(column[j]);
+	}
+
+	/** Covers every column of a given row. */
+	private void select(int node) {
+		cover(column[node]);
+		choose(node);
+	}
+
+	/** Reverts {@link #select(int)}. */
+	private void unselect(int node) {
+		unchoose(node);
+		uncover(column[node]);
+	}
+
+	/** Removes a column and every row that intersects it. */
+	private void cover(int col) {
+		right[left[col]] = right[col];
+		left[right[col]] = left[col];
+		for(int i=down[col]; i!=col; i=down[i])
+			for(int j=right[i]; j!=i; j=right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				count[column[j]]--;
+			}
+	}
+
+	/** Reverts {@link #cover(int)}. */
+	private void uncover(int col) {
+		for(int i=up[col]; i!=col; i=up[i])
+			for(int j=left[i]; j!=i; j=left[j]) {
+				count[column[j]]++;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		right[left[col]] = col;
+		left[right[col]] = col;
+	}
+
+	/**
+	 * {@link Solver} engine registered as {@code "dlx"}.
+	 */
+	public static final class Engine extends SizedSolver<DlxSolver> {
+		@Override
+		public String getName() {
+			return "dlx";
+		}
+
+		@Override
+		protected DlxSolver create(int size) {
+			return new DlxSolver(size);
+		}
+
+		@Override
+		protected byte[] solve(DlxSolver solver, byte[] grid) {
+			return solver.solve(grid);
+		}
+
+		@Override
+		protected int countSolutions(DlxSolver solver, byte[] grid, int limit) {
+			return solver.countSolutions(grid, limit);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+/**
+ * Precomputed layout tables and size-specialized kernels for one Sudoku board dimension.
+ * <p>
+ * One instance exists per supported size (4, 9, 16, 25, 36, 49 and 64) and is shared by every
+ * board of that size. The tables map each cell to its row, column and sub-grid and list its
+ * peers, so engines can walk units without any division. Value masks use bit {@code v-1} for
+ * value {@code v}; sizes up to 32 are validated with {@code int} masks and larger sizes with
+ * {@code long} masks, while the 4x4 and 9x9 kernels have constant bounds the JIT can unroll.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class Geometry {
+	/** Largest supported board dimension; every value mask fits in one {@code long}. */
+	public static final int MAX_SIZE = 64;
+	/** Shared instances indexed by sub-grid dimension. */
+	private static final Geometry[] CACHE = new Geometry[9];
+
+	/** Dimension of the board. */
+	private final int size;
+	/** Dimension of a sub-grid of the board. */
+	private final int cellDim;
+	/** Number of cells of the board. */
+	private final int cellCount;
+	/** Mask with one bit set for every value of the board. */
+	private final long fullMask;
+	/** Row of each cell. */
+	private final int[] rowOf;
+	/** Column of each cell. */
+	private final int[] colOf;
+	/** Sub-grid of each cell, counted row by row. */
+	private final int[] boxOf;
+	/** Cells of each unit: rows, then columns, then sub-grids, {@code size} cells per unit. */
+	private final int[] units;
+	/** Peers of each cell, {@link #peerCount} per cell. */
+	private final int[] peers;
+	/** Number of peers of a cell. */
+	private final int peerCount;
+	/**
+	 * Units of each cell as one mask: bit of its row, bit {@code size} + its column and bit
+	 * {@code 2*size} + its sub-grid. Null for boards above 16x16, whose units do not fit a {@code long}.
+	 */
+	private final long[] unitBits;
+
+	private Geometry(int cellDim) {
+		this.cellDim = cellDim;
+		size = cellDim*cellDim;
+		cellCount = size*size;
+		fullMask = size == 64 ? -1L : (1L << size) - 1;
+		rowOf = new int[cellCount];
+		colOf = new int[cellCount];
+		boxOf = new int[cellCount];
+		for(int i=0; i<cellCount; i++) {
+			rowOf[i] = i / size;
+			colOf[i] = i % size;
+			boxOf[i] = (rowOf[i]/cellDim)*cellDim + colOf[i]/cellDim;
+		}
+		units = new int[3*cellCount];
+		for(int u=0; u<size; u++)
+			for(int k=0; k<size; k++) {
+				units[u*size+k] = u*size + k;
+				units[cellCount + u*size+k] = k*size + u;
+				units[2*cellCount + u*size+k] = ((u/cellDim)*cellDim + k/cellDim)*size + (u%cellDim)*cellDim + k%cellDim;
+			}
+		peerCount = 2*(size-1) + (cellDim-1)*(cellDim-1);
+		peers = new int[cellCount*peerCount];
+		for(int i=0; i<cellCount; i++) {
+			int p = i*peerCount;
+			for(int j=0; j<cellCount; j++)
+				if(j != i && (rowOf[j] == rowOf[i] || colOf[j] == colOf[i] || boxOf[j] == boxOf[i]))
+					peers[p++] = j;
+		}
+		unitBits = 3*size > 64 ? null : new long[cellCount];
+		if(unitBits != null)
+			for(int i=0; i<cellCount; i++)
+				unitBits[i] = 1L << rowOf[i] | 1L << (size + colOf[i]) | 1L << (2*size + boxOf[i]);
+	}
+
+	/**
+	 * Returns the shared geometry of a board dimension.
+	 * @param size dimension of the board.
+	 * @return geometry of the board dimension.
+	 * @throws IllegalArgumentException if the size is not a perfect square between 4 and {@link #MAX_SIZE}.
+	 */
+	public static Geometry of(int size) {
+		int cellDim = dimOf(size);
+		synchronized(CACHE) {
+			if(CACHE[cellDim] == null)
+				CACHE[cellDim] = new Geometry(cellDim);
+			return CACHE[cellDim];
+		}
+	}
+
+	/**
+	 * Returns the sub-grid dimension of a board dimension.
+	 * @param size dimension of the board.
+	 * @return dimension of a sub-grid.
+	 * @throws IllegalArgumentException if the size is not a perfect square between 4 and {@link #MAX_SIZE}.
+	 */
+	public static int dimOf(int size) {
+		int cellDim = (int)Math.round(Math.sqrt(size));
+		if(cellDim < 2 || cellDim*cellDim != size || size > MAX_SIZE)
+			throw new IllegalArgumentException("Unsupported board size: " + size);
+		return cellDim;
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter for {@link #cellDim}.
+	 * @return {@link #cellDim}
+	 */
+	public int getCellDim() {
+		return cellDim;
+	}
+
+	/**
+	 * Getter for {@link #cellCount}.
+	 * @return {@link #cellCount}
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Getter for {@link #fullMask}.
+	 * @return {@link #fullMask}
+	 */
+	public long getFullMask() {
+		return fullMask;
+	}
+
+	/**
+	 * Getter for {@link #peerCount}.
+	 * @return {@link #peerCount}
+	 */
+	public int getPeerCount() {
+		return peerCount;
+	}
+
+	/**
+	 * Returns the row of a cell.
+	 * @param index index of the cell.
+	 * @return row of the cell.
+	 */
+	public int rowOf(int index) {
+		return rowOf[index];
+	}
+
+	/**
+	 * Returns the column of a cell.
+	 * @param index index of the cell.
+	 * @return column of the cell.
+	 */
+	public int colOf(int index) {
+		return colOf[index];
+	}
+
+	/**
+	 * Returns the sub-grid of a cell.
+	 * @param index index of the cell.
+	 * @return sub-grid of the cell, counted row by row.
+	 */
+	public int boxOf(int index) {
+		return boxOf[index];
+	}
+
+	/**
+	 * Returns a cell of a unit.
+	 * @param unit unit index: rows are {@code 0..size-1}, columns {@code size..2*size-1}
+	 *             and sub-grids {@code 2*size..3*size-1}.
+	 * @param k position of the cell within the unit.
+	 * @return index of the cell.
+	 */
+	public int unitCell(int unit, int k) {
+		return units[unit*size + k];
+	}
+
+	/**
+	 * Returns a peer of a cell.
+	 * @param index index of the cell.
+	 * @param k position of the peer, below {@link #peerCount}.
+	 * @return index of the peer.
+	 */
+	public int peer(int index, int k) {
+		return peers[index*peerCount + k];
+	}
+
+	/**
+	 * Determines whether a packed grid is complete and valid: every cell is filled and
+	 * only one of each number exists in every row, column, and sub-grid. Values outside
+	 * {@code 1..size} make the grid invalid rather than aliasing other values in the masks.
+	 * @param values packed cell values.
+	 * @param offset index of the grid's first cell in {@code values}.
+	 * @return true if the grid is complete and valid, false otherwise.
+	 */
+	public boolean isValidGrid(byte[] values, int offset) {
+		switch(size) {
+		case 4: return valid4(values, offset);
+		case 9: return valid9(values, offset);
+		case 16: case 25: return validInt(values, offset, size, cellDim);
+		default: return validLong(values, offset, size, cellDim, fullMask);
+		}
+	}
+
+	/**
+	 * Validates many complete grids stored back to back, as {@link #isValidGrid} would one at a time.
+	 * <p>
+	 * Up to 16x16 the grids go through a batch kernel that reads every cell once: it records,
+	 * for each value, the mask of units holding it, and a grid is valid exactly when every value
+	 * is found in every unit. Larger boards fall back to {@link #isValidGrid}. Either way, values
+	 * outside {@code 1..size} never form a valid grid.
+	 * @param grids packed cell values, {@link #cellCount} per grid.
+	 * @param offset index of the first grid's first cell in {@code grids}.
+	 * @param count number of grids to check.
+	 * @param valid receives the result of grid {@code k} at index {@code k}.
+	 * @return number of valid grids.
+	 * @throws IllegalArgumentException if {@code grids} or {@code valid} is too short for {@code count} grids.
+	 */
+	public int validateAll(byte[] grids, int offset, int count, boolean[] valid) {
+		if(count < 0 || offset < 0 || (long)offset + (long)count*cellCount > grids.length || count > valid.length)
+			throw new IllegalArgumentException("Arrays do not hold " + count + " grids of " + cellCount + " cells");
+		int passed = 0;
+		long[] seen = unitBits == null ? null : new long[size+1];
+		for(int k=0; k<count; k++, offset+=cellCount) {
+			valid[k] = seen == null ? isValidGrid(grids, offset) : covers(grids, offset, seen);
+			if(valid[k])
+				passed++;
+		}
+		return passed;
+	}
+
+	/** Batch kernel: true if every value lies in every row, column and sub-grid, which takes all cells. */
+	private boolean covers(byte[] v, int o, long[] seen) {
+		for(int value=1; value<=size; value++)
+			seen[value] = 0;
+		for(int i=0; i<cellCount; i++) {
+			int value = v[o + i];
+			if(value < 1 || value > size)
+				return false;
+			seen[value] |= unitBits[i];
+		}
+		long all = (1L << 3*size) - 1;
+		for(int value=1; value<=size; value++)
+			if(seen[value] != all)
+				return false;
+		return true;
+	}
+
+	/** 4x4 kernel with constant bounds. */
+	private static boolean valid4(byte[] v, int o) {
+		for(int u=0; u<4; u++) {
+			int row = 0, col = 0, box = 0, range = 0;
+			int b = o + ((u>>1)<<3) + ((u&1)<<1);
+			for(int k=0; k<4; k++) {
+				int value = v[o + u*4 + k];
+				range |= value - 1 | 4 - value;
+				row |= 1 << value;
+				col |= 1 << v[o + k*4 + u];
+				box |= 1 << v[b + ((k>>1)<<2) + (k&1)];
+			}
+			if(range < 0 || (row & col & box) != 0x1E)
+				return false;
+		}
+		return true;
+	}
+
+	/** 9x9 kernel with constant bounds. */
+	private static boolean valid9(byte[] v, int o) {
+		for(int u=0; u<9; u++) {
+			int row = 0, col = 0, box = 0, range = 0;
+			int r = o + u*9, b = o + (u/3)*27 + (u%3)*3;
+			for(int k=0; k<9; k++) {
+				int value = v[r + k];
+				range |= value - 1 | 9 - value;
+				row |= 1 << value;
+				col |= 1 << v[o + k*9 + u];
+			}
+			for(int x=b; x<b+27; x+=9)
+				box |= 1 << v[x] | 1 << v[x+1] | 1 << v[x+2];
+			if(range < 0 || (row & col & box) != 0x3FE)
+				return false;
+		}
+		return true;
+	}
+
+	/** Kernel for sizes whose value masks fit in an {@code int}. */
+	private static boolean validInt(byte[] v, int o, int size, int cellDim) {
+		int full = ((1 << size) - 1) << 1;
+		for(int u=0; u<size; u++) {
+			int row = 0, col = 0, box = 0, range = 0;
+			int r = o + u*size, b = o + (u/cellDim)*cellDim*size + (u%cellDim)*cellDim;
+			for(int k=0; k<size; k++) {
+				int value = v[r + k];
+				range |= value - 1 | size - value;
+				row |= 1 << value;
+				col |= 1 << v[o + k*size + u];
+			}
+			for(int x=b; x<b+cellDim*size; x+=size)
+				for(int y=x; y<x+cellDim; y++)
+					box |= 1 << v[y];
+			if(range < 0 || (row & col & box) != full)
+				return false;
+		}
+		return true;
+	}
+
+	/** Kernel for sizes whose value masks need a {@code long}. Empty cells make the mask miss a value. */
+	private static boolean validLong(byte[] v, int o, int size, int cellDim, long full) {
+		for(int u=0; u<size; u++) {
+			long row = 0, col = 0, box = 0;
+			int range = 0;
+			int r = o + u*size, b = o + (u/cellDim)*cellDim*size + (u%cellDim)*cellDim;
+			for(int k=0; k<size; k++) {
+				int value = v[r + k];
+				range |= value - 1 | size - value;
+				row |= bit(value);
+				col |= bit(v[o + k*size + u]);
+			}
+			for(int x=b; x<b+cellDim*size; x+=size)
+				for(int y=x; y<x+cellDim; y++)
+					box |= bit(v[y]);
+			if(range < 0 || (row & col & box) != full)
+				return false;
+		}
+		return true;
+	}
+
+	/** Mask bit of a value, 0 for an empty cell. */
+	private static long bit(int value) {
+		return value == 0 ? 0 : 1L << (value-1);
+	}
+}
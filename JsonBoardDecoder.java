@@ -0,0 +1,388 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonBoard;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonClient;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonSquare;
+
+/**
+ * Streaming decoder of Sudoku game boards from a Sudoku Web Service API.
+ * <p>
+ * Reads a board object token by token from its own character buffer and writes every square
+ * straight into a {@link CellStorage}, skipping the JSON tree, the {@link JsonBoard} and its
+ * {@link JsonSquare} list. Keys are matched in place without building strings, and squares
+ * that come before the board's size are held in a reusable array until the size is known, so
+ * a decoder allocates nothing per square. Unknown keys are skipped. A decoder is reusable but
+ * not thread-safe; use one per thread.
+ * <p>
+ * See <a href="http://www.cs.utep.edu/cheon/ws/sudoku/">http://www.cs.utep.edu/cheon/ws/sudoku/</a>
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public class JsonBoardDecoder {
+	/** Keys the decoder knows, indexed by the constants below. */
+	private static final char[][] KEYS = {"response".toCharArray(), "size".toCharArray(), "squares".toCharArray(),
+			"reason".toCharArray(), "x".toCharArray(), "y".toCharArray(), "value".toCharArray()};
+	/** Indexes of {@link #KEYS}, and {@link #OTHER} for any other key. */
+	private static final int RESPONSE = 0, SIZE = 1, SQUARES = 2, REASON = 3, X = 4, Y = 5, VALUE = 6, OTHER = -1;
+	/** Longest key matched; longer keys are skipped. */
+	private static final int MAX_KEY = 8;
+
+	/** Characters read but not yet decoded. */
+	private final char[] buffer = new char[8192];
+	/** Characters of the key being read. */
+	private final char[] key = new char[MAX_KEY];
+	/** Position of the next character in {@link #buffer}. */
+	private int position;
+	/** End of the characters in {@link #buffer}. */
+	private int limit;
+	/** Characters consumed before {@link #buffer}, for error messages. */
+	private long consumed;
+	/** Source of the characters. */
+	private Reader in;
+	/** Squares read before the size, three ints each: x, y and value. */
+	private int[] pending = new int[3*81];
+	/** Number of ints used in {@link #pending}. */
+	private int pendingLength;
+	/** Dimension of the board, -1 until read. */
+	private int size;
+	/** Storage being filled, null until the size is read. */
+	private CellStorage cells;
+
+	/**
+	 * Retrieves a Sudoku game board from the Sudoku Web Service API and decodes it while it
+	 * streams in, straight into the board's cells.
+	 * @param size dimension of the desired Sudoku board.
+	 * @param level difficulty level of the desired Sudoku board.
+	 * @return the board, its squares fixed.
+	 * @throws IOException if the request fails or the response cannot be decoded.
+	 * @see JsonClient#openBoard(int, int)
+	 */
+	public static Board request(int size, int level) throws IOException {
+		try(Reader in = JsonClient.openBoard(size, level)) {
+			return new JsonBoardDecoder().decode(in);
+		}
+	}
+
+	/**
+	 * Decodes a board into a {@link Board}, counting its solutions as {@link Board#Board(JsonBoard)} does.
+	 * @param in reader positioned at the board object; it is not closed.
+	 * @return the board, its squares fixed.
+	 * @throws IOException if reading fails, the JSON is malformed, the service refused the
+	 *                     request or a square does not fit the board.
+	 */
+	public Board decode(Reader in) throws IOException {
+		Board board = new Board(decodeCells(in));
+		board.getSolutionCount(); // Check the service's puzzle before anyone plays it
+		return board;
+	}
+
+	/**
+	 * Decodes a board into cell storage, marking every non-empty square as fixed.
+	 * @param in reader positioned at the board object; it is not closed.
+	 * @return storage of the board.
+	 * @throws IOException if reading fails, the JSON is malformed, the service refused the
+	 *                     request or a square does not fit the board.
+	 */
+	public CellStorage decodeCells(Reader in) throws IOException {
+		this.in = in;
+		position = limit = 0;
+		consumed = 0;
+		pendingLength = 0;
+		size = -1;
+		cells = null;
+		boolean response = false;
+		String reason = null;
+		try {
+			expect('{');
+			if(peek() != '}')
+				do {
+					int name = readKey();
+					expect(':');
+					switch(name) {
+					case RESPONSE: response = readBoolean(); break;
+					case SIZE: setSize(readInt()); break;
+					case SQUARES: readSquares(); break;
+					case REASON: reason = peek() == '"' ? readString() : skipValue(); break;
+					default: skipValue();
+					}
+				} while(next(','));
+			expect('}');
+		}
+		finally {
+			this.in = null;
+		}
+		if(!response)
+			throw new IOException("API did not generate request" + (reason != null ? ": " + reason : ""));
+		if(cells == null)
+			throw new IOException("Board has no size");
+		CellStorage decoded = cells;
+		cells = null;
+		return decoded;
+	}
+
+	/** Creates the storage once the size is known and places the squares read before it. */
+	private void setSize(int value) throws IOException {
+		if(cells != null)
+			throw error("Size given twice");
+		try {
+			cells = new CellStorage(value, Geometry.dimOf(value));
+		} catch(IllegalArgumentException e) {
+			throw error("Unsupported size " + value);
+		}
+		size = value;
+		for(int i=0; i<pendingLength; i+=3)
+			place(pending[i], pending[i+1], pending[i+2]);
+		pendingLength = 0;
+	}
+
+	/** Reads the array of squares. */
+	private void readSquares() throws IOException {
+		expect('[');
+		if(peek() != ']')
+			do
+				readSquare();
+			while(next(','));
+		expect(']');
+	}
+
+	/** Reads one square object and places it, or holds it until the size is known. */
+	private void readSquare() throws IOException {
+		int x = -1, y = -1, value = -1;
+		expect('{');
+		if(peek() != '}')
+			do {
+				int name = readKey();
+				expect(':');
+				switch(name) {
+				case X: x = readInt(); break;
+				case Y: y = readInt(); break;
+				case VALUE: value = readInt(); break;
+				default: skipValue();
+				}
+			} while(next(','));
+		expect('}');
+		if(cells != null)
+			place(x, y, value);
+		else {
+			if(pendingLength + 3 > pending.length)
+				pending = Arrays.copyOf(pending, 2*pending.length);
+			pending[pendingLength++] = x;
+			pending[pendingLength++] = y;
+			pending[pendingLength++] = value;
+		}
+	}
+
+	/** Writes a square into the storage as a fixed value. */
+	private void place(int x, int y, int value) throws IOException {
+		if(x < 0 || x >= size || y < 0 || y >= size || value < 0 || value > size)
+			throw error("Square " + x + "," + y + " = " + value + " does not fit a " + size + "x" + size + " board");
+		int index = x*size + y;
+		cells.setValue(index, value);
+		if(value != 0)
+			cells.addState(index, State.FIXED);
+	}
+
+	/** Reads a key and returns its constant, or {@link #OTHER} for a key the decoder does not use. */
+	private int readKey() throws IOException {
+		expect('"');
+		int length = 0;
+		boolean plain = true;
+		for(int c; (c = read()) != '"'; ) {
+			if(c < 0)
+				throw error("Unterminated key");
+			if(c == '\\') {
+				plain = false;
+				read();
+			}
+			else if(length < MAX_KEY)
+				key[length] = (char)c;
+			length++;
+		}
+		if(plain && length <= MAX_KEY)
+			for(int k=0; k<KEYS.length; k++)
+				if(matches(KEYS[k], length))
+					return k;
+		return OTHER;
+	}
+
+	/** Tells whether the key read is a known key. */
+	private boolean matches(char[] known, int length) {
+		if(known.length != length)
+			return false;
+		for(int i=0; i<length; i++)
+			if(key[i] != known[i])
+				return false;
+		return true;
+	}
+
+	/** Reads an integer, given as a number or, as the API gives the size, as a string. */
+	private int readInt() throws IOException {
+		boolean quoted = peek() == '"';
+		if(quoted)
+			read();
+		boolean negative = peekRaw() == '-';
+		if(negative)
+			read();
+		long value = 0;
+		int digits = 0;
+		for(int c; (c = peekRaw()) >= '0' && c <= '9'; digits++) {
+			read();
+			value = 10*value + (c - '0');
+			if(value > Integer.MAX_VALUE)
+				throw error("Number out of range");
+		}
+		if(digits == 0)
+			throw error("Expected an integer");
+		if(quoted && read() != '"')
+			throw error("Expected an integer string");
+		return (int)(negative ? -value : value);
+	}
+
+	/** Reads {@code true} or {@code false}. */
+	private boolean readBoolean() throws IOException {
+		int c = peek();
+		if(c == 't') {
+			literal("true");
+			return true;
+		}
+		literal("false");
+		return false;
+	}
+
+	/** Reads a string value. */
+	private String readString() throws IOException {
+		expect('"');
+		StringBuilder text = new StringBuilder();
+		for(int c; (c = read()) != '"'; ) {
+			if(c < 0)
+				throw error("Unterminated string");
+			if(c == '\\') {
+				c = read();
+				switch(c) {
+				case 'n': c = '\n'; break;
+				case 't': c = '\t'; break;
+				case 'r': c = '\r'; break;
+				case 'b': c = '\b'; break;
+				case 'f': c = '\f'; break;
+				case 'u': c = Integer.parseInt("" + (char)read() + (char)read() + (char)read() + (char)read(), 16); break;
+				default: // Quote, backslash and slash stand for themselves
+				}
+			}
+			text.append((char)c);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Skips any value.
+	 * @return null, so that skipped optional strings read as absent.
+	 */
+	private String skipValue() throws IOException {
+		int c = peek();
+		switch(c) {
+		case '{':
+		case '[':
+			read();
+			int depth = 1;
+			boolean quoted = false;
+			while(depth > 0) {
+				c = read();
+				if(c < 0)
+					throw error("Unterminated value");
+				if(quoted) {
+					if(c == '\\')
+						read();
+					else if(c == '"')
+						quoted = false;
+				}
+				else if(c == '"')
+					quoted = true;
+				else if(c == '{' || c == '[')
+					depth++;
+				else if(c == '}' || c == ']')
+					depth--;
+			}
+			return null;
+		case '"':
+			read();
+			for(int d; (d = read()) != '"'; )
+				if(d < 0)
+					throw error("Unterminated string");
+				else if(d == '\\')
+					read();
+			return null;
+		default: // Number or literal
+			while((c = peekRaw()) >= 0 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c))
+				read();
+			return null;
+		}
+	}
+
+	/** Reads an expected literal. */
+	private void literal(String word) throws IOException {
+		for(int i=0; i<word.length(); i++)
+			if(read() != word.charAt(i))
+				throw error("Expected " + word);
+	}
+
+	/** Skips white space and reads an expected character. */
+	private void expect(char expected) throws IOException {
+		if(peek() != expected)
+			throw error("Expected '" + expected + "'");
+		position++;
+	}
+
+	/** Skips white space and consumes a separator if it is next. */
+	private boolean next(char separator) throws IOException {
+		if(peek() != separator)
+			return false;
+		position++;
+		return true;
+	}
+
+	/** Skips white space and returns the next character without consuming it, -1 at the end. */
+	private int peek() throws IOException {
+		for(int c; (c = peekRaw()) >= 0; position++)
+			if(c != ' ' && c != '\n' && c != '\r' && c != '\t')
+				return c;
+		return -1;
+	}
+
+	/** Returns the next character without consuming it, -1 at the end. */
+	private int peekRaw() throws IOException {
+		if(position == limit && !fill())
+			return -1;
+		return buffer[position];
+	}
+
+	/** Consumes the next character, -1 at the end. */
+	private int read() throws IOException {
+		if(position == limit && !fill())
+			return -1;
+		return buffer[position++];
+	}
+
+	/** Refills the buffer; returns false at the end of the input. */
+	private boolean fill() throws IOException {
+		consumed += limit;
+		position = limit = 0;
+		int read;
+		while((read = in.read(buffer)) == 0)
+			;
+		if(read < 0)
+			return false;
+		limit = read;
+		return true;
+	}
+
+	/** Returns an exception telling where decoding failed. */
+	private IOException error(String message) {
+		return new IOException(message + " at character " + (consumed + position));
+	}
+}
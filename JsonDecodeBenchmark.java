@@ -0,0 +1,115 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+
+import com.eclipsesource.json.Json;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonBoard;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonClient;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonSquare;
+
+/**
+ * Compares {@link JsonBoardDecoder} with the three-stage path of the JSON tree, the
+ * {@link JsonBoard} and {@link Board#Board(JsonBoard)}, on responses shaped like those of the
+ * Sudoku Web Service API.
+ * <p>
+ * Responses are built from {@link PuzzleGenerator} puzzles of each size. Every path is timed
+ * twice: up to filled cell storage, which isolates decoding, and up to a {@link Board}, which
+ * adds the solution count both constructors take. Allocation per response is read from the
+ * JVM's per-thread counter where available.
+ * <p>
+ * Usage: {@code JsonDecodeBenchmark [responses] [rounds]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class JsonDecodeBenchmark {
+	/** Board sizes measured. */
+	private static final int[] SIZES = {9, 16};
+
+	private JsonDecodeBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args optionally the number of distinct responses per size, then the number of rounds.
+	 * @throws Exception if a response cannot be decoded.
+	 */
+	public static void main(String[] args) throws Exception {
+		int responses = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		for(int size : SIZES) {
+			String[] json = new String[responses];
+			PuzzleGenerator generator = new PuzzleGenerator(size, size);
+			long chars = 0;
+			for(int i=0; i<responses; i++) {
+				json[i] = toJson(generator.generate(PuzzleGenerator.EASY), size);
+				chars += json[i].length();
+			}
+			System.out.printf("%dx%d, %d responses of %d characters on average%n", size, size, responses, chars / responses);
+			JsonBoardDecoder decoder = new JsonBoardDecoder();
+			int repeat = Math.max(1, 200_000 / responses / size);
+			for(int round=0; round<rounds; round++) {
+				time("tree + JsonBoard, cells", json, repeat, s -> cellsOf(JsonClient.parseBoard(Json.parse(new StringReader(s)).asObject())).getFilled());
+				time("streaming, cells", json, repeat, s -> decoder.decodeCells(new StringReader(s)).getFilled());
+				time("tree + JsonBoard, Board", json, Math.max(1, repeat/10), s -> new Board(JsonClient.parseBoard(Json.parse(new StringReader(s)).asObject())).getSize());
+				time("streaming, Board", json, Math.max(1, repeat/10), s -> decoder.decode(new StringReader(s)).getSize());
+			}
+		}
+	}
+
+	/** Decoding of one response; returns a number so that the work is not optimized away. */
+	private interface Decode {
+		int decode(String json) throws Exception;
+	}
+
+	/** Times decoding every response a number of times and prints the rate and allocation. */
+	private static void time(String name, String[] json, int repeat, Decode decode) throws Exception {
+		long sink = 0, bytes = allocated();
+		long start = System.nanoTime();
+		for(int r=0; r<repeat; r++)
+			for(String s : json)
+				sink += decode.decode(s);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long count = (long)repeat * json.length;
+		bytes = allocated() - bytes;
+		System.out.printf("  %-26s %10.0f responses/s %8.2f us each %10s bytes each (%d)%n", name, count / seconds,
+				seconds * 1e6 / count, bytes < 0 ? "?" : String.valueOf(bytes / count), sink);
+	}
+
+	/** Returns the bytes allocated by the current thread so far, or -1 if the JVM does not tell. */
+	private static long allocated() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/** Copies a JsonBoard into storage the way {@link Board#Board(JsonBoard)} does. */
+	private static CellStorage cellsOf(JsonBoard board) {
+		int size = board.getSize();
+		CellStorage cells = new CellStorage(size, Geometry.dimOf(size));
+		for(JsonSquare square : board.getSquares()) {
+			int index = square.getX()*size + square.getY();
+			cells.setValue(index, square.getValue());
+			cells.addState(index, State.FIXED);
+		}
+		return cells;
+	}
+
+	/** Writes a puzzle as a response of the web service, size as a String like the API. */
+	private static String toJson(byte[] puzzle, int size) {
+		StringBuilder json = new StringBuilder("{\"response\":true,\"size\":\"").append(size).append("\",\"squares\":[");
+		boolean first = true;
+		for(int i=0; i<puzzle.length; i++)
+			if(puzzle[i] != 0) {
+				if(!first)
+					json.append(',');
+				first = false;
+				json.append("{\"x\":").append(i / size).append(",\"y\":").append(i % size).append(",\"value\":").append(puzzle[i]).append('}');
+			}
+		return json.append("]}").toString();
+	}
+}
@@ -0,0 +1,601 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Step-wise solver that fills a Sudoku game board the way a person would, used to rate how
+ * hard a puzzle is.
+ * <p>
+ * Every empty cell keeps a candidate mask (bit {@code v-1} for value {@code v}). The solver
+ * repeatedly applies the easiest {@link Technique} that makes progress, starting over from the
+ * easiest one after each step, and never guesses. The rating of a puzzle is the weight of the
+ * hardest technique it needs. A solver is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class LogicalSolver {
+
+	/**
+	 * Solving techniques, easiest first. Weights follow the usual Sudoku Explainer scale,
+	 * times ten.
+	 */
+	public enum Technique {
+		/** The only cell of a unit that can hold a value. */
+		HIDDEN_SINGLE(12),
+		/** A cell with a single candidate. */
+		NAKED_SINGLE(23),
+		/** A value confined to one row or column of a sub-grid, removed from the rest of that line. */
+		POINTING(26),
+		/** A value confined to one sub-grid of a row or column, removed from the rest of that sub-grid. */
+		CLAIMING(28),
+		/** Two cells of a unit sharing the same two candidates. */
+		NAKED_PAIR(30),
+		/** A value confined to the same two columns in two rows, or the reverse. */
+		X_WING(32),
+		/** Two values confined to the same two cells of a unit. */
+		HIDDEN_PAIR(34),
+		/** Three cells of a unit whose candidates cover only three values. */
+		NAKED_TRIPLE(36),
+		/** A value confined to the same three columns in three rows, or the reverse. */
+		SWORDFISH(38),
+		/** Three values confined to the same three cells of a unit. */
+		HIDDEN_TRIPLE(40);
+
+		/** Difficulty weight of the technique. */
+		private final int weight;
+
+		private Technique(int weight) {
+			this.weight = weight;
+		}
+
+		/**
+		 * Getter for {@link #weight}.
+		 * @return {@link #weight}
+		 */
+		public int getWeight() {
+			return weight;
+		}
+	}
+
+	/**
+	 * Outcome of rating one puzzle.
+	 */
+	public static final class Rating {
+		/** True if the techniques alone filled the whole board. */
+		private final boolean solved;
+		/** Weight of the hardest technique used, 0 if none was needed. */
+		private final int score;
+		/** Number of steps taken. */
+		private final int steps;
+		/** Techniques used at least once. */
+		private final Set<Technique> techniques;
+
+		private Rating(boolean solved, int score, int steps, Set<Technique> techniques) {
+			this.solved = solved;
+			this.score = score;
+			this.steps = steps;
+			this.techniques = techniques;
+		}
+
+		/**
+		 * Getter for {@link #solved}.
+		 * @return {@link #solved}
+		 */
+		public boolean isSolved() {
+			return solved;
+		}
+
+		/**
+		 * Getter for {@link #score}. Only meaningful when {@link #isSolved()}; otherwise the
+		 * puzzle needs more than these techniques.
+		 * @return {@link #score}
+		 */
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * Getter for {@link #steps}.
+		 * @return {@link #steps}
+		 */
+		public int getSteps() {
+			return steps;
+		}
+
+		/**
+		 * Getter for {@link #techniques}.
+		 * @return {@link #techniques}
+		 */
+		public Set<Technique> getTechniques() {
+			return techniques;
+		}
+	}
+
+	/**
+	 * Next value a player can deduce, and the hardest technique needed to deduce it.
+	 */
+	public static final class Hint {
+		/** x position of the cell. */
+		private final int x;
+		/** y position of the cell. */
+		private final int y;
+		/** Value deduced for the cell. */
+		private final int value;
+		/** Hardest technique used on the way to the deduction. */
+		private final Technique technique;
+
+		private Hint(int x, int y, int value, Technique technique) {
+			this.x = x;
+			this.y = y;
+			this.value = value;
+			this.technique = technique;
+		}
+
+		/**
+		 * Getter for {@link #x}.
+		 * @return {@link #x}
+		 */
+		public int getX() {
+			return x;
+		}
+
+		/**
+		 * Getter for {@link #y}.
+		 * @return {@link #y}
+		 */
+		public int getY() {
+			return y;
+		}
+
+		/**
+		 * Getter for {@link #value}.
+		 * @return {@link #value}
+		 */
+		public int getValue() {
+			return value;
+		}
+
+		/**
+		 * Getter for {@link #technique}.
+		 * @return {@link #technique}
+		 */
+		public Technique getTechnique() {
+			return technique;
+		}
+	}
+
+	/** Techniques in order of difficulty. */
+	private static final Technique[] TECHNIQUES = Technique.values();
+	/** Subset kind: cells of a unit whose candidates cover as many values. */
+	private static final int NAKED = 0;
+	/** Subset kind: values of a unit confined to as many cells. */
+	private static final int HIDDEN = 1;
+	/** Subset kind: rows whose candidates for a value lie in as many columns. */
+	private static final int FISH_ROWS = 2;
+	/** Subset kind: columns whose candidates for a value lie in as many rows. */
+	private static final int FISH_COLS = 3;
+
+	/** Layout tables of the boards solved. */
+	private final Geometry geometry;
+	/** Dimension of the boards solved. */
+	private final int size;
+	/** Number of cells of the boards solved. */
+	private final int cellCount;
+	/** Working cell values. */
+	private final byte[] values;
+	/** Candidates of each empty cell, 0 for filled cells. */
+	private final long[] candidates;
+	/** Masks being combined by the subset search. */
+	private final long[] masks;
+	/** Cell position, value or line behind each entry of {@link #masks}. */
+	private final int[] items;
+	/** Number of filled cells. */
+	private int filled;
+	/** Set once some empty cell has no candidate left. */
+	private boolean broken;
+	/** First cell filled since the givens were loaded, -1 if none. */
+	private int firstPlaced;
+
+	/**
+	 * Creates a solver for one board size.
+	 * @param size dimension of the boards to rate.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public LogicalSolver(int size) {
+		geometry = Geometry.of(size);
+		this.size = size;
+		cellCount = size*size;
+		values = new byte[cellCount];
+		candidates = new long[cellCount];
+		masks = new long[size];
+		items = new int[size];
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Rates the puzzle of a board from its given values.
+	 * @param board board to rate; it is not modified.
+	 * @return rating of the puzzle.
+	 */
+	public Rating rate(Board board) {
+		return rate(board.getGivens());
+	}
+
+	/**
+	 * Solves a puzzle step by step and rates it by the hardest technique needed.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return rating of the puzzle.
+	 */
+	public Rating rate(byte[] grid) {
+		return rate(grid, Technique.HIDDEN_TRIPLE);
+	}
+
+	/**
+	 * Solves a puzzle step by step using only the techniques up to a given one, and rates it
+	 * by the hardest technique needed. A puzzle these techniques solve has a unique solution.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param hardest hardest technique allowed.
+	 * @return rating of the puzzle; not solved if harder techniques or guessing are needed.
+	 */
+	public Rating rate(byte[] grid, Technique hardest) {
+		if(grid.length != cellCount)
+			throw new IllegalArgumentException("Grid does not hold " + cellCount + " cells");
+		EnumSet<Technique> used = EnumSet.noneOf(Technique.class);
+		int score = 0, steps = 0;
+		load(grid);
+		while(filled < cellCount && !broken) {
+			Technique technique = step(hardest);
+			if(technique == null)
+				break;
+			used.add(technique);
+			score = Math.max(score, technique.getWeight());
+			steps++;
+		}
+		return new Rating(filled == cellCount && !broken, score, steps, used);
+	}
+
+	/**
+	 * Finds the next value that follows logically from a partly filled grid.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return the first cell the techniques fill, or null if they fill none or the grid
+	 *         contradicts itself.
+	 */
+	public Hint hint(byte[] grid) {
+		if(grid.length != cellCount)
+			throw new IllegalArgumentException("Grid does not hold " + cellCount + " cells");
+		Technique hardest = null;
+		load(grid);
+		while(filled < cellCount && !broken) {
+			Technique technique = step(Technique.HIDDEN_TRIPLE);
+			if(technique == null || broken)
+				return null;
+			if(hardest == null || technique.getWeight() > hardest.getWeight())
+				hardest = technique;
+			if(firstPlaced >= 0)
+				return new Hint(geometry.rowOf(firstPlaced), geometry.colOf(firstPlaced), values[firstPlaced], hardest);
+		}
+		return null;
+	}
+
+	/**
+	 * Copies the solver's current cell values, solved or not, after {@link #rate(byte[])}.
+	 * @return cell values indexed {@code x*size + y}, 0 for cells left empty.
+	 */
+	public byte[] getValues() {
+		return values.clone();
+	}
+
+	/** Loads the givens and computes the candidates of every empty cell. */
+	private void load(byte[] grid) {
+		Arrays.fill(values, (byte)0);
+		Arrays.fill(candidates, geometry.getFullMask());
+		filled = 0;
+		broken = false;
+		for(int cell=0; cell<cellCount; cell++)
+			if(grid[cell] != 0) {
+				if((candidates[cell] & bit(grid[cell])) == 0)
+					broken = true; // Clashing givens
+				place(cell, grid[cell]);
+			}
+		firstPlaced = -1;
+	}
+
+	/** Fills a cell and removes its value from the candidates of its peers. */
+	private void place(int cell, int value) {
+		long clear = ~bit(value);
+		values[cell] = (byte)value;
+		candidates[cell] = 0;
+		filled++;
+		if(firstPlaced < 0)
+			firstPlaced = cell;
+		for(int k=0; k<geometry.getPeerCount(); k++) {
+			int peer = geometry.peer(cell, k);
+			if(values[peer] == 0 && (candidates[peer] &= clear) == 0)
+				broken = true;
+		}
+	}
+
+	/** Mask bit of a value. */
+	private static long bit(int value) {
+		return 1L << (value-1);
+	}
+
+	/**
+	 * Applies the easiest technique that makes progress, up to a given one.
+	 * @param hardest hardest technique allowed.
+	 * @return technique applied, or null if none up to {@code hardest} made progress.
+	 */
+	private Technique step(Technique hardest) {
+		for(Technique technique : TECHNIQUES) {
+			if(technique.compareTo(hardest) > 0)
+				break;
+			if(apply(technique))
+				return technique;
+		}
+		return null;
+	}
+
+	/** Applies one technique wherever it makes progress. */
+	private boolean apply(Technique technique) {
+		switch(technique) {
+		case HIDDEN_SINGLE: return hiddenSingles();
+		case NAKED_SINGLE: return nakedSingles();
+		case POINTING: return pointing();
+		case CLAIMING: return claiming();
+		case NAKED_PAIR: return nakedSubset(2);
+		case X_WING: return fish(2);
+		case HIDDEN_PAIR: return hiddenSubset(2);
+		case NAKED_TRIPLE: return nakedSubset(3);
+		case SWORDFISH: return fish(3);
+		default: return hiddenSubset(3);
+		}
+	}
+
+	/** Places every value that has one possible cell left in some unit. */
+	private boolean hiddenSingles() {
+		boolean progress = false;
+		for(int unit=0; unit<3*size && !broken; unit++) {
+			long once = 0, twice = 0;
+			for(int k=0; k<size; k++) {
+				long c = candidates[geometry.unitCell(unit, k)];
+				twice |= once & c;
+				once |= c;
+			}
+			for(long hidden = once & ~twice; hidden != 0; hidden &= hidden-1) {
+				long bit = hidden & -hidden;
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(unit, k);
+					if((candidates[cell] & bit) != 0) {
+						place(cell, Long.numberOfTrailingZeros(bit)+1);
+						progress = true;
+						break;
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/** Places every cell that has one candidate left. */
+	private boolean nakedSingles() {
+		boolean progress = false;
+		for(int cell=0; cell<cellCount && !broken; cell++) {
+			long c = candidates[cell];
+			if(c != 0 && (c & (c-1)) == 0) {
+				place(cell, Long.numberOfTrailingZeros(c)+1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/** Removes values confined to one line of a sub-grid from the rest of that line. */
+	private boolean pointing() {
+		for(int box=0; box<size; box++) {
+			int unit = 2*size + box;
+			long union = 0;
+			for(int k=0; k<size; k++)
+				union |= candidates[geometry.unitCell(unit, k)];
+			for(; union != 0; union &= union-1) {
+				long bit = union & -union;
+				long rows = 0, cols = 0;
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(unit, k);
+					if((candidates[cell] & bit) != 0) {
+						rows |= 1L << geometry.rowOf(cell);
+						cols |= 1L << geometry.colOf(cell);
+					}
+				}
+				boolean progress = false;
+				if(Long.bitCount(rows) == 1)
+					progress = clearOutsideBox(Long.numberOfTrailingZeros(rows), box, bit);
+				if(Long.bitCount(cols) == 1)
+					progress |= clearOutsideBox(size + Long.numberOfTrailingZeros(cols), box, bit);
+				if(progress)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/** Removes a candidate from the cells of a line that lie outside a sub-grid. */
+	private boolean clearOutsideBox(int line, int box, long bit) {
+		boolean progress = false;
+		for(int k=0; k<size; k++) {
+			int cell = geometry.unitCell(line, k);
+			if(geometry.boxOf(cell) != box && (candidates[cell] & bit) != 0) {
+				candidates[cell] &= ~bit;
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/** Removes values confined to one sub-grid of a line from the rest of that sub-grid. */
+	private boolean claiming() {
+		for(int line=0; line<2*size; line++) {
+			long union = 0;
+			for(int k=0; k<size; k++)
+				union |= candidates[geometry.unitCell(line, k)];
+			for(; union != 0; union &= union-1) {
+				long bit = union & -union;
+				long boxes = 0;
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(line, k);
+					if((candidates[cell] & bit) != 0)
+						boxes |= 1L << geometry.boxOf(cell);
+				}
+				if(Long.bitCount(boxes) != 1)
+					continue;
+				int unit = 2*size + Long.numberOfTrailingZeros(boxes);
+				boolean progress = false;
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(unit, k);
+					int onLine = line < size ? geometry.rowOf(cell) : size + geometry.colOf(cell);
+					if(onLine != line && (candidates[cell] & bit) != 0) {
+						candidates[cell] &= ~bit;
+						progress = true;
+					}
+				}
+				if(progress)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/** Finds {@code n} cells of a unit whose candidates cover {@code n} values and removes those values from the unit's other cells. */
+	private boolean nakedSubset(int n) {
+		for(int unit=0; unit<3*size; unit++) {
+			int m = 0;
+			for(int k=0; k<size; k++) {
+				int count = Long.bitCount(candidates[geometry.unitCell(unit, k)]);
+				if(count >= 2 && count <= n) {
+					masks[m] = candidates[geometry.unitCell(unit, k)];
+					items[m++] = k;
+				}
+			}
+			if(m >= n && subset(NAKED, unit, m, n, 0, 0, 0, 0))
+				return true;
+		}
+		return false;
+	}
+
+	/** Finds {@code n} values of a unit confined to {@code n} cells and removes every other candidate from those cells. */
+	private boolean hiddenSubset(int n) {
+		for(int unit=0; unit<3*size; unit++) {
+			int m = 0;
+			for(int v=0; v<size; v++) {
+				long positions = 0;
+				for(int k=0; k<size; k++)
+					if((candidates[geometry.unitCell(unit, k)] >>> v & 1) != 0)
+						positions |= 1L << k;
+				int count = Long.bitCount(positions);
+				if(count >= 2 && count <= n) {
+					masks[m] = positions;
+					items[m++] = v;
+				}
+			}
+			if(m >= n && subset(HIDDEN, unit, m, n, 0, 0, 0, 0))
+				return true;
+		}
+		return false;
+	}
+
+	/** Finds {@code n} rows (or columns) whose candidates for a value lie in {@code n} columns (or rows). */
+	private boolean fish(int n) {
+		for(int v=0; v<size; v++)
+			for(int kind=FISH_ROWS; kind<=FISH_COLS; kind++) {
+				int m = 0, base = kind == FISH_ROWS ? 0 : size;
+				for(int line=0; line<size; line++) {
+					long positions = 0;
+					for(int k=0; k<size; k++)
+						if((candidates[geometry.unitCell(base + line, k)] >>> v & 1) != 0)
+							positions |= 1L << k;
+					int count = Long.bitCount(positions);
+					if(count >= 2 && count <= n) {
+						masks[m] = positions;
+						items[m++] = line;
+					}
+				}
+				if(m >= n && subset(kind, v, m, n, 0, 0, 0, 0))
+					return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Searches the first {@code m} entries of {@link #masks} for {@code n} entries whose union
+	 * has {@code n} bits and whose elimination makes progress.
+	 * @param kind subset kind.
+	 * @param context unit of a naked or hidden subset, value of a fish.
+	 * @param m number of entries.
+	 * @param n number of entries to combine.
+	 * @param start first entry still to consider.
+	 * @param depth number of entries chosen so far.
+	 * @param union union of the chosen masks.
+	 * @param chosen chosen entries, one bit each.
+	 * @return true if some subset removed a candidate, false otherwise.
+	 */
+	private boolean subset(int kind, int context, int m, int n, int start, int depth, long union, long chosen) {
+		if(depth == n)
+			return Long.bitCount(union) == n && eliminate(kind, context, union, chosen);
+		for(int i=start; i<=m-(n-depth); i++) {
+			long next = union | masks[i];
+			if(Long.bitCount(next) <= n && subset(kind, context, m, n, i+1, depth+1, next, chosen | 1L << i))
+				return true;
+		}
+		return false;
+	}
+
+	/** Applies the eliminations of a subset found by {@link #subset}. */
+	private boolean eliminate(int kind, int context, long union, long chosen) {
+		long picked = 0;
+		for(long c = chosen; c != 0; c &= c-1)
+			picked |= 1L << items[Long.numberOfTrailingZeros(c)];
+		boolean progress = false;
+		if(kind == NAKED) { // picked: positions in the unit; union: values
+			for(int k=0; k<size; k++) {
+				int cell = geometry.unitCell(context, k);
+				if((picked >>> k & 1) == 0 && (candidates[cell] & union) != 0) {
+					candidates[cell] &= ~union;
+					progress = true;
+				}
+			}
+		}
+		else if(kind == HIDDEN) { // picked: values; union: positions in the unit
+			for(long p = union; p != 0; p &= p-1) {
+				int cell = geometry.unitCell(context, Long.numberOfTrailingZeros(p));
+				if((candidates[cell] & ~picked) != 0) {
+					candidates[cell] &= picked;
+					progress = true;
+				}
+			}
+		}
+		else { // picked: base lines; union: cover lines
+			long bit = 1L << context;
+			int cover = kind == FISH_ROWS ? size : 0;
+			for(long p = union; p != 0; p &= p-1) {
+				int unit = cover + Long.numberOfTrailingZeros(p);
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(unit, k);
+					if((picked >>> k & 1) == 0 && (candidates[cell] & bit) != 0) {
+						candidates[cell] &= ~bit;
+						progress = true;
+					}
+				}
+			}
+		}
+		return progress;
+	}
+}
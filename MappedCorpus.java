@@ -0,0 +1,193 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+
+/**
+ * Memory-mapped reader of puzzle files in the {@link PuzzleText} format.
+ * <p>
+ * The file is split into line-aligned {@link Chunk}s, each mapped with
+ * {@link FileChannel#map}, so several threads can parse one file at the same time. A chunk
+ * parses cell symbols straight from its mapped bytes into a grid or a {@link CellStorage},
+ * without creating any {@code String}. Blank lines and lines starting with {@code #} are
+ * skipped; both {@code \n} and {@code \r\n} line ends are accepted.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class MappedCorpus implements Closeable {
+	/** Largest number of bytes mapped by one chunk. */
+	private static final long MAX_CHUNK = 1L << 30;
+	/** Bytes read at a time while looking for a line end. */
+	private static final int SCAN = 4096;
+
+	/** Channel of the mapped file. */
+	private final FileChannel channel;
+	/** Length of the file in bytes. */
+	private final long length;
+
+	/**
+	 * Opens a puzzle file for mapping.
+	 * @param path file to read.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public MappedCorpus(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		length = channel.size();
+	}
+
+	/**
+	 * Getter for {@link #length}.
+	 * @return {@link #length}
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Splits the file into about {@code parts} chunks of similar length, each ending at a
+	 * line end. Large files get more chunks so no chunk maps more than 1 GiB.
+	 * @param parts number of chunks wanted, usually the number of reading threads.
+	 * @return chunks covering the whole file in order.
+	 * @throws IOException if the file cannot be read or mapped.
+	 */
+	public List<Chunk> split(int parts) throws IOException {
+		if(parts < 1)
+			throw new IllegalArgumentException("Part count must be positive: " + parts);
+		long step = Math.max((length + parts - 1) / parts, 1);
+		step = Math.min(step, MAX_CHUNK - SCAN); // Leaves room to reach the line end
+		List<Chunk> chunks = new ArrayList<>();
+		for(long start = 0; start < length; ) {
+			long end = start + step >= length ? length : lineEnd(start + step);
+			chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+			start = end;
+		}
+		return chunks;
+	}
+
+	/** Returns the position just past the first line end at or after a position, or the file length. */
+	private long lineEnd(long from) throws IOException {
+		ByteBuffer scan = ByteBuffer.allocate(SCAN);
+		for(long position = from; position < length; position += scan.limit()) {
+			scan.clear();
+			if(channel.read(scan, position) <= 0)
+				break;
+			scan.flip();
+			for(int i=0; i<scan.limit(); i++)
+				if(scan.get(i) == '\n')
+					return position + i + 1;
+		}
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Line-aligned part of a puzzle file, parsed by one thread at a time.
+	 */
+	public static final class Chunk {
+		/** Mapped bytes of the chunk. */
+		private final MappedByteBuffer buffer;
+		/** Position of the next line in {@link #buffer}. */
+		private int position;
+		/** Start of the line last read. */
+		private int lineStart;
+		/** Length of the line last read, without its line end. */
+		private int lineLength;
+
+		private Chunk(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Returns the number of bytes of the chunk.
+		 * @return length of the chunk.
+		 */
+		public int getLength() {
+			return buffer.limit();
+		}
+
+		/**
+		 * Parses the next puzzle into a grid.
+		 * @param grid receives the cell values; must hold at least {@code 25*25} cells for
+		 *             corpora of every size, or the cell count of the largest puzzle read.
+		 * @return number of cells of the puzzle, 0 once the chunk is exhausted.
+		 * @throws IllegalArgumentException if the line is not a puzzle; the chunk moves past it.
+		 */
+		public int next(byte[] grid) {
+			if(!nextLine())
+				return 0;
+			int size = PuzzleText.sizeOf(lineLength);
+			if(grid.length < lineLength)
+				throw new IllegalArgumentException("Grid does not hold " + lineLength + " cells");
+			for(int i=0; i<lineLength; i++)
+				grid[i] = (byte)valueAt(lineStart + i, size);
+			return lineLength;
+		}
+
+		/**
+		 * Parses the next puzzle straight into a board's cell storage, marking every given
+		 * value as fixed and every empty cell as not fixed.
+		 * @param cells storage whose cell count matches the puzzles of the chunk.
+		 * @return true if a puzzle was read, false once the chunk is exhausted.
+		 * @throws IllegalArgumentException if the line is not a puzzle of the storage's size;
+		 *                                  the chunk moves past it.
+		 */
+		public boolean next(CellStorage cells) {
+			if(!nextLine())
+				return false;
+			if(lineLength != cells.getCellCount())
+				throw new IllegalArgumentException("Line of " + lineLength + " cells does not fit a " + cells.getSize() + "x" + cells.getSize() + " board");
+			int size = cells.getSize();
+			for(int i=0; i<lineLength; i++) {
+				int value = valueAt(lineStart + i, size);
+				cells.setValue(i, value);
+				if(value != 0)
+					cells.addState(i, State.FIXED);
+				else
+					cells.removeState(i, State.FIXED);
+			}
+			return true;
+		}
+
+		/** Moves to the next puzzle line, skipping blank and comment lines. */
+		private boolean nextLine() {
+			int limit = buffer.limit();
+			while(position < limit) {
+				int start = position, end = start;
+				while(end < limit && buffer.get(end) != '\n')
+					end++;
+				position = end < limit ? end+1 : end;
+				if(end > start && buffer.get(end-1) == '\r')
+					end--;
+				if(end > start && buffer.get(start) != '#') {
+					lineStart = start;
+					lineLength = end - start;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/** Decodes the symbol at a position. */
+		private int valueAt(int index, int size) {
+			int symbol = buffer.get(index);
+			int value = symbol >= 0 ? PuzzleText.VALUES[symbol] : -1;
+			if(value < 0 || value > size)
+				throw new IllegalArgumentException("Bad symbol at byte " + index + " of the chunk");
+			return value;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+/**
+ * Bounded undo/redo journal of the moves made on one Sudoku game board.
+ * <p>
+ * Each move is packed into a single {@code int} (cell index, old value and new value) and kept
+ * in a fixed-capacity ring buffer, so recording, undoing and redoing are O(1) and never box or
+ * allocate. Once the journal is full the oldest move is dropped to make room for the newest.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class MoveJournal {
+	/** Bits used by each value of a packed move; values go up to {@link Geometry#MAX_SIZE}. */
+	private static final int VALUE_BITS = 7;
+	/** Mask selecting a value of a packed move. */
+	private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+
+	/** Packed moves, oldest at {@link #head}. */
+	private int[] moves;
+	/** Position of the oldest move in {@link #moves}. */
+	private int head;
+	/** Number of moves that can be undone. */
+	private int undoable;
+	/** Number of undone moves that can be redone. */
+	private int redoable;
+
+	/**
+	 * Creates an empty journal.
+	 * @param capacity maximum number of moves kept.
+	 */
+	public MoveJournal(int capacity) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Journal capacity must be positive: " + capacity);
+		moves = new int[capacity];
+	}
+
+	/**
+	 * Returns the maximum number of moves kept.
+	 * @return capacity of the journal.
+	 */
+	public int getCapacity() {
+		return moves.length;
+	}
+
+	/**
+	 * Changes the maximum number of moves kept. When shrinking, redo moves are dropped
+	 * first, then the oldest moves.
+	 * @param capacity new capacity of the journal.
+	 */
+	public void setCapacity(int capacity) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Journal capacity must be positive: " + capacity);
+		int keepUndo = Math.min(undoable, capacity);
+		int keepRedo = Math.min(redoable, capacity - keepUndo);
+		int start = head + undoable - keepUndo;
+		int[] resized = new int[capacity];
+		for(int i=0; i<keepUndo+keepRedo; i++)
+			resized[i] = moves[(start + i) % moves.length];
+		undoable = keepUndo;
+		redoable = keepRedo;
+		moves = resized;
+		head = 0;
+	}
+
+	/**
+	 * Records a move, discarding any moves that were undone and not redone.
+	 * @param index index of the cell.
+	 * @param oldValue value of the cell before the move.
+	 * @param newValue value of the cell after the move.
+	 */
+	public void record(int index, int oldValue, int newValue) {
+		redoable = 0;
+		if(undoable == moves.length) {
+			head = (head + 1) % moves.length;
+			undoable--;
+		}
+		moves[(head + undoable++) % moves.length] = index << 2*VALUE_BITS | oldValue << VALUE_BITS | newValue;
+	}
+
+	/**
+	 * Determines if a move can be undone.
+	 * @return true if a move can be undone, false otherwise.
+	 */
+	public boolean canUndo() {
+		return undoable > 0;
+	}
+
+	/**
+	 * Determines if an undone move can be redone.
+	 * @return true if a move can be redone, false otherwise.
+	 */
+	public boolean canRedo() {
+		return redoable > 0;
+	}
+
+	/**
+	 * Steps back over the latest move. Call only when {@link #canUndo()}.
+	 * @return packed move, decoded with {@link #cellOf(int)}, {@link #oldValueOf(int)} and {@link #newValueOf(int)}.
+	 */
+	public int undo() {
+		redoable++;
+		return moves[(head + --undoable) % moves.length];
+	}
+
+	/**
+	 * Steps forward over the latest undone move. Call only when {@link #canRedo()}.
+	 * @return packed move, decoded with {@link #cellOf(int)}, {@link #oldValueOf(int)} and {@link #newValueOf(int)}.
+	 */
+	public int redo() {
+		redoable--;
+		return moves[(head + undoable++) % moves.length];
+	}
+
+	/** Forgets every move. */
+	public void clear() {
+		head = undoable = redoable = 0;
+	}
+
+	/**
+	 * Returns the cell index of a packed move.
+	 * @param move packed move.
+	 * @return index of the cell.
+	 */
+	public static int cellOf(int move) {
+		return move >>> 2*VALUE_BITS;
+	}
+
+	/**
+	 * Returns the value a packed move replaced.
+	 * @param move packed move.
+	 * @return value of the cell before the move.
+	 */
+	public static int oldValueOf(int move) {
+		return move >>> VALUE_BITS & VALUE_MASK;
+	}
+
+	/**
+	 * Returns the value a packed move placed.
+	 * @param move packed move.
+	 * @return value of the cell after the move.
+	 */
+	public static int newValueOf(int move) {
+		return move & VALUE_MASK;
+	}
+}
@@ -0,0 +1,117 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonValue;
+
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonBoard;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonClient;
+import edu.utep.cs.cs3331.ard.sudoku.net.JsonSquare;
+
+/**
+ * Converts puzzle files from text or JSON to the {@link PackedPuzzles} format.
+ * <p>
+ * The input format is told from its first character: {@code [} starts a JSON array of board
+ * objects, {@code &#123;} starts JSON Lines with one board object per line, both in the shape
+ * of the Sudoku Web Service API read by {@link JsonClient#parseBoard}; anything else is read
+ * as {@link PuzzleText} lines with {@link MappedCorpus}. The report gives the puzzle count and
+ * the sizes of the input and of the packed data and index files.
+ * <p>
+ * Usage: {@code PackedConverter <input> <output>}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PackedConverter {
+
+	private PackedConverter() {
+	}
+
+	/**
+	 * Converts a file.
+	 * @param input text or JSON puzzle file.
+	 * @param output packed data file; its index goes next to it.
+	 * @return number of puzzles converted.
+	 * @throws IOException if reading or writing fails.
+	 * @throws IllegalArgumentException if the input holds something that is not a puzzle.
+	 */
+	public static long convert(Path input, Path output) throws IOException {
+		try(PackedPuzzleWriter out = new PackedPuzzleWriter(output)) {
+			switch(firstSymbol(input)) {
+			case '[':
+				try(Reader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+					for(JsonValue board : Json.parse(in).asArray())
+						out.write(gridOf(JsonClient.parseBoard(board.asObject())));
+				}
+				break;
+			case '{':
+				try(BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+					for(String line; (line = in.readLine()) != null; )
+						if(!line.trim().isEmpty())
+							out.write(gridOf(JsonClient.parseBoard(Json.parse(line).asObject())));
+				}
+				break;
+			default:
+				try(MappedCorpus corpus = new MappedCorpus(input)) {
+					byte[] grid = new byte[PuzzleText.MAX_SIZE*PuzzleText.MAX_SIZE];
+					for(MappedCorpus.Chunk chunk : corpus.split(1))
+						for(int cells; (cells = chunk.next(grid)) > 0; )
+							out.write(cells == grid.length ? grid : Arrays.copyOf(grid, cells));
+				}
+			}
+			return out.getCount();
+		}
+	}
+
+	/** Returns the first character of a file that is not white space, or 0 for a blank file. */
+	private static int firstSymbol(Path input) throws IOException {
+		try(Reader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+			for(int c; (c = in.read()) >= 0; )
+				if(!Character.isWhitespace(c))
+					return c;
+		}
+		return 0;
+	}
+
+	/** Returns the cell values of a board from the web service format. */
+	private static byte[] gridOf(JsonBoard board) {
+		int size = board.getSize();
+		Geometry.dimOf(size);
+		byte[] grid = new byte[size*size];
+		for(JsonSquare square : board.getSquares()) {
+			int x = square.getX(), y = square.getY();
+			if(x < 0 || x >= size || y < 0 || y >= size)
+				throw new IllegalArgumentException("Square " + x + "," + y + " is off a " + size + "x" + size + " board");
+			grid[x*size + y] = (byte)square.getValue();
+		}
+		return grid;
+	}
+
+	/**
+	 * Runs the converter from the command line.
+	 * @param args input path, then output path.
+	 * @throws IOException if reading or writing fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			System.err.println("Usage: PackedConverter <input> <output>");
+			System.exit(2);
+		}
+		Path input = Paths.get(args[0]), output = Paths.get(args[1]);
+		long start = System.nanoTime();
+		long puzzles = convert(input, output);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long in = Files.size(input), data = Files.size(output), index = Files.size(PackedPuzzles.indexOf(output));
+		System.out.printf("%d puzzles in %.2f s: %d bytes in, %d bytes packed (%.1f per puzzle, %.1fx smaller), %d bytes of index%n",
+				puzzles, seconds, in, data, (data - PackedPuzzles.HEADER_LENGTH) / (double)Math.max(1, puzzles),
+				in / (double)Math.max(1, data), index);
+	}
+}
@@ -0,0 +1,156 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random-access reader of puzzle files in the {@link PackedPuzzles} format.
+ * <p>
+ * The index file is memory-mapped at open, so finding a record costs two array reads. A record
+ * is then either read with one positioned read, {@link #read(long)}, or sliced out of the
+ * memory-mapped data file, {@link #slice(long)}, which maps the file on first use. Both are
+ * safe to call from several threads at once.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PackedPuzzleReader implements Closeable {
+	/** Channel of the data file. */
+	private final FileChannel data;
+	/** Mapped index file. */
+	private final MappedByteBuffer index;
+	/** Number of records. */
+	private final long count;
+	/** Mapped data file, null until {@link #slice(long)} is first called. */
+	private volatile ByteBuffer mapped;
+
+	/**
+	 * Opens a puzzle file and its index.
+	 * @param path data file to read; the index is read from {@link PackedPuzzles#indexOf(Path)}.
+	 * @throws IOException if either file cannot be read, is not in the format or does not match the other.
+	 */
+	public PackedPuzzleReader(Path path) throws IOException {
+		data = FileChannel.open(path, StandardOpenOption.READ);
+		try(FileChannel indexChannel = FileChannel.open(PackedPuzzles.indexOf(path), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(PackedPuzzles.HEADER_LENGTH);
+			readFully(data, header, 0);
+			count = checkHeader(header, PackedPuzzles.DATA_MAGIC);
+			if(count >= (Integer.MAX_VALUE - PackedPuzzles.HEADER_LENGTH) / Long.BYTES)
+				throw new IOException("Too many records for one index mapping: " + count);
+			long indexLength = PackedPuzzles.HEADER_LENGTH + (count+1)*Long.BYTES;
+			if(indexChannel.size() != indexLength)
+				throw new IOException("Index does not hold " + count + " records");
+			index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexLength);
+			if(checkHeader(index, PackedPuzzles.INDEX_MAGIC) != count)
+				throw new IOException("Index does not hold " + count + " records");
+			if(offset(count) > data.size())
+				throw new IOException("Data file is cut short");
+		} catch(IOException | RuntimeException e) {
+			data.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Getter for {@link #count}.
+	 * @return {@link #count}
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Reads a record with one positioned read.
+	 * @param n number of the record, from 0.
+	 * @return buffer holding exactly the record.
+	 * @throws IOException if reading fails.
+	 * @throws IndexOutOfBoundsException if there is no such record.
+	 */
+	public ByteBuffer read(long n) throws IOException {
+		long start = offset(check(n));
+		ByteBuffer record = ByteBuffer.allocate((int)(offset(n+1) - start));
+		readFully(data, record, start);
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * Returns a record as a slice of the memory-mapped data file.
+	 * @param n number of the record, from 0.
+	 * @return read-only buffer holding exactly the record.
+	 * @throws IOException if the data file cannot be mapped.
+	 * @throws IndexOutOfBoundsException if there is no such record.
+	 */
+	public ByteBuffer slice(long n) throws IOException {
+		long start = offset(check(n)), end = offset(n+1);
+		ByteBuffer file = mapped;
+		if(file == null) {
+			if(offset(count) > Integer.MAX_VALUE) // One mapping cannot hold it; map the record alone
+				return data.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			synchronized(this) {
+				if(mapped == null)
+					mapped = data.map(FileChannel.MapMode.READ_ONLY, 0, offset(count));
+				file = mapped;
+			}
+		}
+		ByteBuffer record = file.duplicate();
+		record.position((int)start).limit((int)end);
+		return record.slice();
+	}
+
+	/**
+	 * Reads and unpacks a puzzle.
+	 * @param n number of the record, from 0.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IOException if reading fails.
+	 * @throws IndexOutOfBoundsException if there is no such record.
+	 */
+	public byte[] get(long n) throws IOException {
+		return PackedPuzzles.decode(read(n));
+	}
+
+	@Override
+	public void close() throws IOException {
+		data.close();
+	}
+
+	/** Returns the offset of a record in the data file; record {@link #count} is the end. */
+	private long offset(long n) {
+		return index.getLong((int)(PackedPuzzles.HEADER_LENGTH + n*Long.BYTES));
+	}
+
+	/** Returns a record number after checking that the record exists. */
+	private long check(long n) {
+		if(n < 0 || n >= count)
+			throw new IndexOutOfBoundsException("No record " + n + " among " + count);
+		return n;
+	}
+
+	/** Checks the magic number and version of a header and returns its record count. */
+	private static long checkHeader(ByteBuffer header, int magic) throws IOException {
+		if(header.getInt(0) != magic)
+			throw new IOException("Not a packed puzzle file");
+		if(header.getShort(4) != PackedPuzzles.VERSION)
+			throw new IOException("Unsupported format version " + header.getShort(4));
+		long count = header.getLong(PackedPuzzles.COUNT_POSITION);
+		if(count < 0)
+			throw new IOException("Negative record count " + count);
+		return count;
+	}
+
+	/** Fills a buffer from a position of a file. */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if(read < 0)
+				throw new EOFException("File ends at " + position);
+			position += read;
+		}
+	}
+}
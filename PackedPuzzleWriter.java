@@ -0,0 +1,118 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a puzzle file in the {@link PackedPuzzles} format together with its index.
+ * <p>
+ * Records and offsets are gathered in buffers and written in large blocks; the record counts
+ * of both headers are filled in when the writer is closed, so a file that was not closed
+ * reads as empty.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PackedPuzzleWriter implements Closeable {
+	/** Bytes buffered before a write to either file. */
+	private static final int BUFFER = 1 << 16;
+
+	/** Channel of the data file. */
+	private final FileChannel data;
+	/** Channel of the index file. */
+	private final FileChannel index;
+	/** Records not yet written. */
+	private final ByteBuffer records = ByteBuffer.allocate(BUFFER);
+	/** Offsets not yet written. */
+	private final ByteBuffer offsets = ByteBuffer.allocate(BUFFER);
+	/** Offset of the next record in the data file. */
+	private long offset = PackedPuzzles.HEADER_LENGTH;
+	/** Number of records written. */
+	private long count;
+
+	/**
+	 * Creates a puzzle file and its index, replacing any existing ones.
+	 * @param path data file to write; the index goes to {@link PackedPuzzles#indexOf(Path)}.
+	 * @throws IOException if either file cannot be created.
+	 */
+	public PackedPuzzleWriter(Path path) throws IOException {
+		data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			index = FileChannel.open(PackedPuzzles.indexOf(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		} catch(IOException e) {
+			data.close();
+			throw e;
+		}
+		header(records, PackedPuzzles.DATA_MAGIC);
+		header(offsets, PackedPuzzles.INDEX_MAGIC);
+	}
+
+	/**
+	 * Getter for {@link #count}.
+	 * @return {@link #count}
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Appends a puzzle.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IOException if writing fails.
+	 * @throws IllegalArgumentException if the grid is not a supported board or holds a value out of range.
+	 */
+	public void write(byte[] grid) throws IOException {
+		int length = PackedPuzzles.recordLength((int)Math.round(Math.sqrt(grid.length)));
+		if(records.remaining() < length)
+			flush(records, data);
+		if(offsets.remaining() < Long.BYTES)
+			flush(offsets, index);
+		int start = records.position();
+		try {
+			PackedPuzzles.encode(grid, records);
+		} catch(IllegalArgumentException e) {
+			records.position(start);
+			throw e;
+		}
+		offsets.putLong(offset);
+		offset += records.position() - start;
+		count++;
+	}
+
+	/**
+	 * Writes the end offset and both record counts, then closes the files.
+	 * @throws IOException if writing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		try(FileChannel d = data; FileChannel i = index) {
+			if(offsets.remaining() < Long.BYTES)
+				flush(offsets, index);
+			offsets.putLong(offset);
+			flush(records, data);
+			flush(offsets, index);
+			ByteBuffer total = ByteBuffer.allocate(Long.BYTES);
+			total.putLong(0, count);
+			d.write(total, PackedPuzzles.COUNT_POSITION);
+			total.clear();
+			i.write(total, PackedPuzzles.COUNT_POSITION);
+		}
+	}
+
+	/** Puts a header with no records yet. */
+	private static void header(ByteBuffer buffer, int magic) {
+		buffer.putInt(magic).putShort(PackedPuzzles.VERSION).putShort((short)0).putLong(0);
+	}
+
+	/** Writes the buffered bytes to a file and empties the buffer. */
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
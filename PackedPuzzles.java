@@ -0,0 +1,187 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.Square.State;
+
+/**
+ * Binary format of puzzle files, with cells packed a few bits each and a separate offset index.
+ * <p>
+ * A data file starts with a {@value #HEADER_LENGTH}-byte header: the magic number
+ * {@code SDKP}, a format version, two reserved bytes and the record count as a long. Each
+ * record then holds the board dimension in one byte followed by the cell values, row by row,
+ * packed most significant bit first in {@link #bitsPerCell(int)} bits each: 3 bits for 4x4
+ * boards, 4 for 9x9, 5 up to 25x25 and 6 or 7 beyond, 0 being the empty cell. A 9x9 record
+ * therefore takes 42 bytes.
+ * <p>
+ * The index file, named after the data file with {@value #INDEX_SUFFIX} appended, starts with
+ * the same header under the magic number {@code SDKI} and holds one long offset per record,
+ * then the end of the last record, so record {@code n} is read with one positioned read of
+ * {@code offset[n+1] - offset[n]} bytes. Both files are big-endian.
+ * See {@link PackedPuzzleWriter} and {@link PackedPuzzleReader}.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PackedPuzzles {
+	/** Magic number of data files, {@code SDKP}. */
+	public static final int DATA_MAGIC = 0x53444B50;
+	/** Magic number of index files, {@code SDKI}. */
+	public static final int INDEX_MAGIC = 0x53444B49;
+	/** Version of the format. */
+	public static final short VERSION = 1;
+	/** Length of the header of both files, in bytes. */
+	public static final int HEADER_LENGTH = 16;
+	/** Position of the record count in the header. */
+	static final int COUNT_POSITION = 8;
+	/** Suffix turning the name of a data file into the name of its index. */
+	public static final String INDEX_SUFFIX = ".idx";
+
+	private PackedPuzzles() {
+	}
+
+	/**
+	 * Returns the index file of a data file.
+	 * @param data path of the data file.
+	 * @return path of its index file.
+	 */
+	public static Path indexOf(Path data) {
+		return data.resolveSibling(data.getFileName() + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Returns the number of bits a cell takes on a board.
+	 * @param size dimension of the board.
+	 * @return bits per cell, enough for the values 0 to {@code size}.
+	 */
+	public static int bitsPerCell(int size) {
+		return 32 - Integer.numberOfLeadingZeros(size);
+	}
+
+	/**
+	 * Returns the length of a record.
+	 * @param size dimension of the board.
+	 * @return bytes taken by the record, dimension byte included.
+	 */
+	public static int recordLength(int size) {
+		return 1 + (size*size*bitsPerCell(size) + 7) / 8;
+	}
+
+	/**
+	 * Packs a puzzle into a record.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param out receives the record at its position, which moves past it.
+	 * @throws IllegalArgumentException if the grid is not a supported board or holds a value out of range.
+	 */
+	public static void encode(byte[] grid, ByteBuffer out) {
+		int size = (int)Math.round(Math.sqrt(grid.length));
+		if(size*size != grid.length)
+			throw new IllegalArgumentException("No board has " + grid.length + " cells");
+		Geometry.dimOf(size);
+		int bits = bitsPerCell(size), pending = 0;
+		long word = 0;
+		out.put((byte)size);
+		for(int i=0; i<grid.length; i++) {
+			int value = grid[i];
+			if(value < 0 || value > size)
+				throw new IllegalArgumentException("Value " + value + " of cell " + i + " is out of range");
+			word = word << bits | value;
+			for(pending += bits; pending >= 8; pending -= 8)
+				out.put((byte)(word >>> pending-8));
+		}
+		if(pending > 0)
+			out.put((byte)(word << 8-pending));
+	}
+
+	/**
+	 * Returns the board dimension of a record.
+	 * @param record record at its position.
+	 * @return dimension of the board.
+	 */
+	public static int sizeOf(ByteBuffer record) {
+		return record.get(record.position()) & 0xFF;
+	}
+
+	/**
+	 * Unpacks a record into a grid.
+	 * @param record record at its position, which is left unchanged.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the record is damaged.
+	 */
+	public static byte[] decode(ByteBuffer record) {
+		int size = checkedSize(record);
+		byte[] grid = new byte[size*size];
+		Cells cells = new Cells(record, size);
+		for(int i=0; i<grid.length; i++)
+			grid[i] = (byte)cells.next();
+		return grid;
+	}
+
+	/**
+	 * Unpacks a record straight into a board's cell storage, marking every given value as fixed
+	 * and every empty cell as not fixed.
+	 * @param record record at its position, which is left unchanged.
+	 * @param cells storage of the record's size.
+	 * @throws IllegalArgumentException if the record is damaged or of another size.
+	 */
+	public static void decode(ByteBuffer record, CellStorage cells) {
+		int size = checkedSize(record);
+		if(size != cells.getSize())
+			throw new IllegalArgumentException("Record of a " + size + "x" + size + " board does not fit a " + cells.getSize() + "x" + cells.getSize() + " board");
+		Cells values = new Cells(record, size);
+		for(int i=0, count=size*size; i<count; i++) {
+			int value = values.next();
+			cells.setValue(i, value);
+			if(value != 0)
+				cells.addState(i, State.FIXED);
+			else
+				cells.removeState(i, State.FIXED);
+		}
+	}
+
+	/** Returns the dimension of a record after checking that the record holds all its cells. */
+	private static int checkedSize(ByteBuffer record) {
+		int size = sizeOf(record);
+		Geometry.dimOf(size);
+		if(record.remaining() < recordLength(size))
+			throw new IllegalArgumentException("Record of a " + size + "x" + size + " board is cut short");
+		return size;
+	}
+
+	/** Reads the packed cells of a record one at a time. */
+	private static final class Cells {
+		/** The record. */
+		private final ByteBuffer record;
+		/** Dimension of the board. */
+		private final int size;
+		/** Bits per cell. */
+		private final int bits;
+		/** Position of the next byte to read. */
+		private int position;
+		/** Bits read but not yet returned, lowest {@link #pending} bits valid. */
+		private int word;
+		/** Number of valid bits in {@link #word}. */
+		private int pending;
+
+		private Cells(ByteBuffer record, int size) {
+			this.record = record;
+			this.size = size;
+			bits = bitsPerCell(size);
+			position = record.position() + 1;
+		}
+
+		/** Returns the next cell value. */
+		private int next() {
+			if(pending < bits) {
+				word = word << 8 | record.get(position++) & 0xFF;
+				pending += 8;
+			}
+			pending -= bits;
+			int value = word >>> pending & (1 << bits) - 1;
+			if(value > size)
+				throw new IllegalArgumentException("Value " + value + " is out of range for a " + size + "x" + size + " board");
+			return value;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how {@link ParallelSolver} scales with the number of fork-join workers.
+ * <p>
+ * Sparse puzzles are made by scattering random givens over an empty board and keeping the
+ * grids that have a solution. Each puzzle is solved to its first solution by the sequential
+ * {@link PropagationSolver}, then by a {@link ParallelSolver} on pools of 1, 2, 4, 8 and 16
+ * workers; the report gives the time per puzzle and the speedup over one worker. Worker counts
+ * above the number of processors measure overlapping searches rather than extra CPU, so the
+ * processor count is printed first.
+ * <p>
+ * Usage: {@code ParallelBenchmark [size] [puzzles] [givens] [split-depth] [rounds]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class ParallelBenchmark {
+	/** Worker counts measured. */
+	private static final int[] WORKERS = {1, 2, 4, 8, 16};
+
+	private ParallelBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args optionally the board size, the number of puzzles, the givens scattered per
+	 *             puzzle, the split depth and the number of timed rounds.
+	 */
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int givens = args.length > 2 ? Integer.parseInt(args[2]) : size*size*3/25;
+		int depth = args.length > 3 ? Integer.parseInt(args[3]) : ParallelSolver.DEFAULT_SPLIT_DEPTH;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+		Geometry geometry = Geometry.of(size);
+		PropagationSolver sequential = new PropagationSolver(size);
+		List<byte[]> puzzles = new ArrayList<>();
+		Random random = new Random(7);
+		while(puzzles.size() < count) {
+			byte[] grid = new byte[size*size];
+			for(int k=0; k<givens; k++)
+				grid[random.nextInt(grid.length)] = (byte)(1 + random.nextInt(size));
+			if(sequential.countSolutions(grid, 1) == 1)
+				puzzles.add(grid);
+		}
+		System.out.printf("%dx%d, %d puzzles of %d scattered givens, split depth %d, %d processors%n",
+				size, size, count, givens, depth, Runtime.getRuntime().availableProcessors());
+		System.out.printf("  %-12s %8.2f ms per puzzle%n", "sequential", time(puzzles, geometry, rounds, sequential::solve));
+		double one = 0;
+		for(int workers : WORKERS) {
+			ForkJoinPool pool = new ForkJoinPool(workers);
+			try {
+				double millis = time(puzzles, geometry, rounds, new ParallelSolver(size, pool, depth)::solve);
+				if(workers == 1)
+					one = millis;
+				System.out.printf("  %-12s %8.2f ms per puzzle %6.2fx over 1 worker%n",
+						workers + (workers == 1 ? " worker" : " workers"), millis, one / millis);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/** Solver of a raw grid. */
+	private interface Solve {
+		byte[] solve(byte[] grid);
+	}
+
+	/** Solves every puzzle once to warm up, then for a number of rounds; returns the milliseconds per puzzle. */
+	private static double time(List<byte[]> puzzles, Geometry geometry, int rounds, Solve solve) {
+		for(byte[] puzzle : puzzles)
+			solve.solve(puzzle);
+		long start = System.nanoTime();
+		for(int round=0; round<rounds; round++)
+			for(byte[] puzzle : puzzles) {
+				byte[] solution = solve.solve(puzzle);
+				if(solution == null || !geometry.isValidGrid(solution, 0))
+					throw new IllegalStateException("No valid solution found");
+			}
+		return (System.nanoTime() - start) / 1e6 / rounds / puzzles.size();
+	}
+}
@@ -0,0 +1,245 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fork-join solver for large Sudoku game boards.
+ * <p>
+ * The top {@link #splitDepth} levels of the search tree are expanded as {@link RecursiveAction}
+ * tasks: each task fills the singles of its grid and forks one subtask per candidate of the
+ * most constrained cell, so idle workers steal whole subtrees. Below the split depth each task
+ * runs a sequential {@link PropagationSolver} owned by its worker thread. Every search shares a
+ * {@link SearchMonitor} that is cancelled as soon as the first solution is found, or once the
+ * solution count reaches its limit, and that the sequential searches check as they go.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class ParallelSolver {
+	/** Number of search-tree levels split into tasks by default. */
+	public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+	/** Dimension of the boards solved. */
+	private final int size;
+	/** Pool running the search tasks. */
+	private final ForkJoinPool pool;
+	/** Number of search-tree levels split into tasks. */
+	private final int splitDepth;
+	/** Sequential solver of each worker thread. */
+	private final ThreadLocal<PropagationSolver> solvers;
+
+	/**
+	 * Creates a solver running on the common fork-join pool.
+	 * @param size dimension of the boards to solve.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public ParallelSolver(int size) {
+		this(size, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+	}
+
+	/**
+	 * Creates a solver running on a given pool.
+	 * @param size dimension of the boards to solve.
+	 * @param pool pool running the search tasks.
+	 * @param splitDepth number of search-tree levels split into tasks.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}
+	 *                                  or the split depth is negative.
+	 */
+	public ParallelSolver(int size, ForkJoinPool pool, int splitDepth) {
+		Geometry.of(size);
+		if(splitDepth < 0)
+			throw new IllegalArgumentException("Split depth must not be negative: " + splitDepth);
+		this.size = size;
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+		solvers = ThreadLocal.withInitial(() -> new PropagationSolver(size));
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter for {@link #splitDepth}.
+	 * @return {@link #splitDepth}
+	 */
+	public int getSplitDepth() {
+		return splitDepth;
+	}
+
+	/**
+	 * Finds a solution of a board snapshot's values. With several solutions, which one is
+	 * returned depends on thread timing.
+	 * @param snapshot snapshot to solve.
+	 * @return solved cell values indexed {@code x*size + y}, or null if there is no solution.
+	 */
+	public byte[] solve(BoardSnapshot snapshot) {
+		return solve(valuesOf(snapshot));
+	}
+
+	/**
+	 * Finds a solution of a puzzle. With several solutions, which one is returned depends on
+	 * thread timing.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return solved cell values, or null if there is no solution.
+	 */
+	public byte[] solve(byte[] grid) {
+		List<byte[]> solutions = solveAll(grid, 1);
+		return solutions.isEmpty() ? null : solutions.get(0);
+	}
+
+	/**
+	 * Finds the solutions of a puzzle, up to a limit.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit maximum number of solutions to return.
+	 * @return solutions found, in no particular order.
+	 */
+	public List<byte[]> solveAll(byte[] grid, int limit) {
+		List<byte[]> solutions = Collections.synchronizedList(new ArrayList<>());
+		Search search = new Search(limit, solutions);
+		search.run(grid);
+		return solutions.size() > limit ? new ArrayList<>(solutions.subList(0, limit)) : solutions;
+	}
+
+	/**
+	 * Counts the solutions of a board snapshot's values, stopping once a limit is reached.
+	 * @param snapshot snapshot to solve.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	public int countSolutions(BoardSnapshot snapshot, int limit) {
+		return countSolutions(valuesOf(snapshot), limit);
+	}
+
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	public int countSolutions(byte[] grid, int limit) {
+		Search search = new Search(limit, null);
+		search.run(grid);
+		return Math.min(search.found.get(), limit);
+	}
+
+	/** Reads the cell values of a snapshot. */
+	private byte[] valuesOf(BoardSnapshot snapshot) {
+		if(snapshot.getSize() != size)
+			throw new IllegalArgumentException("Snapshot size " + snapshot.getSize() + " does not match solver size " + size);
+		return snapshot.getValues();
+	}
+
+	/** Shared state of one parallel search. */
+	private final class Search {
+		/** Number of solutions after which to stop. */
+		private final int limit;
+		/** Receives a copy of every solution, may be null. */
+		private final List<byte[]> all;
+		/** Number of solutions found so far, possibly past {@link #limit}. */
+		private final AtomicInteger found = new AtomicInteger();
+		/** Cancelled once {@link #limit} solutions are found. */
+		private final SearchMonitor monitor = new SearchMonitor();
+
+		private Search(int limit, List<byte[]> all) {
+			if(limit < 1)
+				throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+			this.limit = limit;
+			this.all = all;
+		}
+
+		/** Runs the search over a puzzle and waits for every task. */
+		private void run(byte[] grid) {
+			if(grid.length != size*size)
+				throw new IllegalArgumentException("Grid does not hold " + size*size + " cells");
+			pool.invoke(new Branch(this, grid.clone(), 0));
+		}
+
+		/** Adds solutions found by one task, cancelling the search at the limit. */
+		private void report(int count) {
+			if(found.addAndGet(count) >= limit)
+				monitor.cancel();
+		}
+	}
+
+	/** Task searching the subtree below one partial grid. */
+	private final class Branch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		/** Search this task belongs to. */
+		private final Search search;
+		/** Partial grid of the subtree. */
+		private final byte[] grid;
+		/** Depth of the subtree in the search tree. */
+		private final int depth;
+
+		private Branch(Search search, byte[] grid, int depth) {
+			this.search = search;
+			this.grid = grid;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if(search.monitor.isStopped())
+				return;
+			PropagationSolver solver = solvers.get();
+			if(depth >= splitDepth) {
+				int remaining = search.limit - search.found.get();
+				if(remaining > 0)
+					search.report(solver.search(grid, remaining, null, search.all, search.monitor));
+				return;
+			}
+			if(!solver.reduce(grid))
+				return;
+			int cell = solver.branchCell();
+			if(cell < 0) {
+				if(search.all != null)
+					search.all.add(solver.values().clone());
+				search.report(1);
+				return;
+			}
+			byte[] reduced = solver.values().clone();
+			List<Branch> children = new ArrayList<>();
+			for(long rest = solver.branchCandidates(); rest != 0; rest &= rest-1) {
+				byte[] child = reduced.clone();
+				child[cell] = (byte)(Long.numberOfTrailingZeros(rest)+1);
+				children.add(new Branch(search, child, depth+1));
+			}
+			invokeAll(children);
+		}
+	}
+
+	/**
+	 * {@link Solver} engine registered as {@code "parallel"}.
+	 */
+	public static final class Engine extends SizedSolver<ParallelSolver> {
+		@Override
+		public String getName() {
+			return "parallel";
+		}
+
+		@Override
+		protected ParallelSolver create(int size) {
+			return new ParallelSolver(size);
+		}
+
+		@Override
+		protected byte[] solve(ParallelSolver solver, byte[] grid) {
+			return solver.solve(grid);
+		}
+
+		@Override
+		protected int countSolutions(ParallelSolver solver, byte[] grid, int limit) {
+			return solver.countSolutions(grid, limit);
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Constraint-propagation solver for Sudoku game boards of one size.
+ * <p>
+ * The solver keeps one occupancy mask per row, column and sub-grid. It fills naked and hidden
+ * singles until nothing more follows, then branches on the empty cell with the fewest
+ * candidates (minimum remaining values). Every assignment is pushed on a trail of cell
+ * indices and every branch remembers its trail mark and untried candidates, so backtracking
+ * pops the trail instead of copying boards; the search loop allocates nothing.
+ * A solver is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PropagationSolver {
+	/** Number of nodes expanded between two checks of a {@link SearchMonitor}. */
+	private static final int CHECK_INTERVAL = 256;
+
+	/** Layout tables of the boards solved. */
+	private final Geometry geometry;
+	/** Dimension of the boards solved. */
+	private final int size;
+	/** Number of cells of the boards solved. */
+	private final int cellCount;
+	/** Mask with one bit set for every value. */
+	private final long full;
+	/** Working cell values. */
+	private final byte[] values;
+	/** Occupancy masks: rows, then columns, then sub-grids. */
+	private final long[] used;
+	/** Candidates of each empty cell as of the last naked-single pass. */
+	private final long[] cand;
+	/** Cells assigned so far, in assignment order. */
+	private final int[] trail;
+	/** Trail length when each branch was taken. */
+	private final int[] marks;
+	/** Cell branched on at each level. */
+	private final int[] branchCell;
+	/** Candidates not yet tried at each level. */
+	private final long[] branchRest;
+	/** Number of entries on {@link #trail}. */
+	private int top;
+	/** Empty cell with the fewest candidates after the last propagation. */
+	private int bestCell;
+	/** Candidates of {@link #bestCell}. */
+	private long bestCandidates;
+	/** Nodes expanded since the monitor was last told. */
+	private int pending;
+
+	/**
+	 * Creates a solver for one board size.
+	 * @param size dimension of the boards to solve.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public PropagationSolver(int size) {
+		geometry = Geometry.of(size);
+		this.size = size;
+		cellCount = size*size;
+		full = geometry.getFullMask();
+		values = new byte[cellCount];
+		used = new long[3*size];
+		cand = new long[cellCount];
+		trail = new int[cellCount];
+		marks = new int[cellCount];
+		branchCell = new int[cellCount];
+		branchRest = new long[cellCount];
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Finds the first solution of a board's current values.
+	 * @param board board to solve; it is not modified.
+	 * @return solved cell values indexed {@code x*size + y}, or null if there is no solution.
+	 */
+	public byte[] solve(Board board) {
+		return solve(board.getCells().values());
+	}
+
+	/**
+	 * Finds the first solution of a puzzle.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return solved cell values, or null if there is no solution.
+	 */
+	public byte[] solve(byte[] grid) {
+		byte[] solution = new byte[cellCount];
+		return search(grid, 1, solution, null) == 1 ? solution : null;
+	}
+
+	/**
+	 * Finds the first solution of a puzzle, stopping early if a monitor says so.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param monitor receives the node count and can stop the search.
+	 * @return solved cell values, or null if there is no solution or the search was stopped.
+	 */
+	public byte[] solve(byte[] grid, SearchMonitor monitor) {
+		byte[] solution = new byte[cellCount];
+		return search(grid, 1, solution, null, monitor) == 1 ? solution : null;
+	}
+
+	/**
+	 * Finds the solutions of a puzzle, up to a limit.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit maximum number of solutions to return.
+	 * @return solutions found, in search order.
+	 */
+	public List<byte[]> solveAll(byte[] grid, int limit) {
+		List<byte[]> solutions = new ArrayList<>();
+		search(grid, limit, null, solutions);
+		return solutions;
+	}
+
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	public int countSolutions(byte[] grid, int limit) {
+		return search(grid, limit, null, null);
+	}
+
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached or a monitor says so.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param limit number of solutions after which to stop.
+	 * @param monitor receives the node count and can stop the search.
+	 * @return number of solutions found before stopping, at most {@code limit}.
+	 */
+	public int countSolutions(byte[] grid, int limit, SearchMonitor monitor) {
+		return search(grid, limit, null, null, monitor);
+	}
+
+	/**
+	 * Loads a puzzle and fills every single that follows from it, leaving the working state
+	 * ready for {@link #branchCell()}, {@link #branchCandidates()} and {@link #values()}.
+	 * @param grid puzzle to reduce.
+	 * @return false if the puzzle has no solution, true otherwise.
+	 */
+	boolean reduce(byte[] grid) {
+		if(grid.length != cellCount)
+			throw new IllegalArgumentException("Grid does not hold " + cellCount + " cells");
+		return load(grid) && propagate();
+	}
+
+	/**
+	 * Returns the cell the search would branch on after {@link #reduce(byte[])}.
+	 * @return index of the most constrained empty cell, -1 if the grid is full.
+	 */
+	int branchCell() {
+		return top == cellCount ? -1 : bestCell;
+	}
+
+	/**
+	 * Returns the candidates of {@link #branchCell()}.
+	 * @return candidate mask, bit {@code v-1} for value {@code v}.
+	 */
+	long branchCandidates() {
+		return bestCandidates;
+	}
+
+	/**
+	 * Returns the working cell values; they are overwritten by the next solve.
+	 * @return working cell values.
+	 */
+	byte[] values() {
+		return values;
+	}
+
+	/**
+	 * Loads a puzzle and runs the search.
+	 * @param grid puzzle to solve.
+	 * @param limit number of solutions after which to stop.
+	 * @param first receives the first solution, may be null.
+	 * @param all receives a copy of every solution, may be null.
+	 * @return number of solutions found.
+	 */
+	private int search(byte[] grid, int limit, byte[] first, List<byte[]> all) {
+		return search(grid, limit, first, all, null);
+	}
+
+	/**
+	 * Loads a puzzle and runs the search until it is exhausted, the limit is reached or
+	 * the monitor says to stop.
+	 * @param grid puzzle to solve.
+	 * @param limit number of solutions after which to stop.
+	 * @param first receives the first solution, may be null.
+	 * @param all receives a copy of every solution, may be null.
+	 * @param monitor told of every {@link #CHECK_INTERVAL} nodes, may be null.
+	 * @return number of solutions found.
+	 */
+	int search(byte[] grid, int limit, byte[] first, List<byte[]> all, SearchMonitor monitor) {
+		pending = 0;
+		int found = reduce(grid) ? search(limit, first, all, monitor) : 0;
+		if(monitor != null)
+			monitor.checkpoint(pending);
+		return found;
+	}
+
+	/** Backtracking search from the reduced working state. */
+	private int search(int limit, byte[] first, List<byte[]> all, SearchMonitor monitor) {
+		int found = 0, level = 0;
+		boolean ok = true;
+		while(true) {
+			if(monitor != null && ++pending == CHECK_INTERVAL) {
+				pending = 0;
+				if(!monitor.checkpoint(CHECK_INTERVAL))
+					return found;
+			}
+			if(ok && top == cellCount) {
+				if(found == 0 && first != null)
+					System.arraycopy(values, 0, first, 0, cellCount);
+				if(all != null)
+					all.add(values.clone());
+				if(++found >= limit)
+					return found;
+				ok = false;
+			}
+			if(ok) { // branch on the most constrained cell
+				long bit = bestCandidates & -bestCandidates;
+				branchCell[level] = bestCell;
+				branchRest[level] = bestCandidates & ~bit;
+				marks[level++] = top;
+				assign(bestCell, Long.numberOfTrailingZeros(bit)+1);
+				ok = propagate();
+				continue;
+			}
+			while(level > 0 && branchRest[level-1] == 0) // backtrack to a level with untried values
+				undo(marks[--level]);
+			if(level == 0)
+				return found;
+			undo(marks[level-1]);
+			long rest = branchRest[level-1];
+			long bit = rest & -rest;
+			branchRest[level-1] = rest & ~bit;
+			assign(branchCell[level-1], Long.numberOfTrailingZeros(bit)+1);
+			ok = propagate();
+		}
+	}
+
+	/**
+	 * Resets the working state to a puzzle's givens.
+	 * @param grid puzzle to load.
+	 * @return false if two givens clash, true otherwise.
+	 */
+	private boolean load(byte[] grid) {
+		Arrays.fill(values, (byte)0);
+		Arrays.fill(used, 0);
+		top = 0;
+		for(int cell=0; cell<cellCount; cell++) {
+			int value = grid[cell];
+			if(value == 0)
+				continue;
+			long bit = 1L << (value-1);
+			if(((used[geometry.rowOf(cell)] | used[size + geometry.colOf(cell)] | used[2*size + geometry.boxOf(cell)]) & bit) != 0)
+				return false;
+			assign(cell, value);
+		}
+		return true;
+	}
+
+	/** Places a value and pushes the cell on the trail. */
+	private void assign(int cell, int value) {
+		long bit = 1L << (value-1);
+		values[cell] = (byte)value;
+		used[geometry.rowOf(cell)] |= bit;
+		used[size + geometry.colOf(cell)] |= bit;
+		used[2*size + geometry.boxOf(cell)] |= bit;
+		trail[top++] = cell;
+	}
+
+	/** Pops the trail back to a mark, clearing every cell assigned since. */
+	private void undo(int mark) {
+		while(top > mark) {
+			int cell = trail[--top];
+			long bit = ~(1L << (values[cell]-1));
+			values[cell] = 0;
+			used[geometry.rowOf(cell)] &= bit;
+			used[size + geometry.colOf(cell)] &= bit;
+			used[2*size + geometry.boxOf(cell)] &= bit;
+		}
+	}
+
+	/** Returns the candidates of an empty cell. */
+	private long candidates(int cell) {
+		return full & ~(used[geometry.rowOf(cell)] | used[size + geometry.colOf(cell)] | used[2*size + geometry.boxOf(cell)]);
+	}
+
+	/**
+	 * Fills naked and hidden singles until none remain, then records the empty cell with the
+	 * fewest candidates in {@link #bestCell}.
+	 * @return false if some cell or unit has no way left to be filled, true otherwise.
+	 */
+	private boolean propagate() {
+		boolean progress = true;
+		while(progress) {
+			progress = false;
+			int best = size+1;
+			for(int cell=0; cell<cellCount; cell++) {
+				if(values[cell] != 0)
+					continue;
+				long c = candidates(cell);
+				cand[cell] = c;
+				int n = Long.bitCount(c);
+				if(n == 0)
+					return false;
+				if(n == 1) {
+					assign(cell, Long.numberOfTrailingZeros(c)+1);
+					progress = true;
+				}
+				else if(n < best) {
+					best = n;
+					bestCell = cell;
+					bestCandidates = c;
+				}
+			}
+			if(top == cellCount)
+				return true;
+			if(progress)
+				continue;
+			for(int unit=0; unit<3*size; unit++) { // hidden singles; cached candidates can only be too wide
+				long once = 0, twice = 0;
+				for(int k=0; k<size; k++) {
+					int cell = geometry.unitCell(unit, k);
+					if(values[cell] == 0) {
+						long c = cand[cell];
+						twice |= once & c;
+						once |= c;
+					}
+				}
+				if((once | used[unit]) != full)
+					return false;
+				for(long hidden = once & ~twice & ~used[unit]; hidden != 0; hidden &= hidden-1) {
+					long bit = hidden & -hidden;
+					int k = 0;
+					while(k < size && (values[geometry.unitCell(unit, k)] != 0 || (candidates(geometry.unitCell(unit, k)) & bit) == 0))
+						k++;
+					if(k == size)
+						return false;
+					assign(geometry.unitCell(unit, k), Long.numberOfTrailingZeros(bit)+1);
+					progress = true;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@link Solver} engine registered as {@code "propagation"}.
+	 */
+	public static final class Engine extends SizedSolver<PropagationSolver> {
+		@Override
+		public String getName() {
+			return "propagation";
+		}
+
+		@Override
+		protected PropagationSolver create(int size) {
+			return new PropagationSolver(size);
+		}
+
+		@Override
+		protected byte[] solve(PropagationSolver solver, byte[] grid) {
+			return solver.solve(grid);
+		}
+
+		@Override
+		protected int countSolutions(PropagationSolver solver, byte[] grid, int limit) {
+			return solver.countSolutions(grid, limit);
+		}
+	}
+}
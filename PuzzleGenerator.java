@@ -0,0 +1,308 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.Random;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.LogicalSolver.Technique;
+
+/**
+ * Local generator of Sudoku puzzles with a unique solution, used when the web service is not.
+ * <p>
+ * A puzzle starts from a random full solution grid. Its clues are then removed in random
+ * order, each removal kept only while {@link LogicalSolver} still solves the puzzle with the
+ * techniques of its level, which also proves the solution unique and keeps hints available:
+ * <ol>
+ * <li>singles only, keeping at least four ninths of the cells as clues;</li>
+ * <li>singles only, with as few clues as they allow;</li>
+ * <li>every technique, removing clues further once singles stop, and needing more than singles.</li>
+ * </ol>
+ * Each candidate puzzle is measured by its clue count and rating, and the generator retries
+ * until a puzzle fits its level or the attempts run out, keeping the closest one. Clue
+ * removal stops at a time budget so that large boards stay bounded.
+ * A generator is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PuzzleGenerator {
+	/** Easiest level. */
+	public static final int EASY = 1;
+	/** Middle level. */
+	public static final int MEDIUM = 2;
+	/** Hardest level. */
+	public static final int HARD = 3;
+	/** Puzzles tried for one level before the closest one is kept. */
+	private static final int ATTEMPTS = 8;
+	/** Nodes a solution count may expand while looking for a second solution. */
+	private static final long CHECK_NODES = 2_000;
+	/** Nodes the search for a solution grid may expand before a pattern grid is used instead. */
+	private static final long SOLUTION_NODES = 20_000;
+	/** Time one puzzle may take, in milliseconds, before clue removal stops. */
+	private static final long TIME_BUDGET = 2_000;
+	/** Largest board on which every level is reached within {@link #TIME_BUDGET}. */
+	private static final int MAX_LEVELED_SIZE = 25;
+
+	/** Layout tables of the boards generated. */
+	private final Geometry geometry;
+	/** Dimension of the boards generated. */
+	private final int size;
+	/** Number of cells of the boards generated. */
+	private final int cellCount;
+	/** Source of randomness. */
+	private final Random random;
+	/** Fills solution grids and finds second solutions. */
+	private final PropagationSolver solver;
+	/** Checks and rates puzzles by the logic they need. */
+	private final LogicalSolver rater;
+	/** Cells in removal order. */
+	private final int[] order;
+	/**
+	 * True if a solution count should rule out a clue removal before rating it. Up to 9x9 it
+	 * is several times cheaper than a failed rating; on larger boards it costs more than it saves.
+	 */
+	private final boolean countFirst;
+	/** Level the last puzzle generated fits, 0 before the first one. */
+	private int lastLevel;
+
+	/**
+	 * Creates a generator for one board size.
+	 * @param size dimension of the boards to generate.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public PuzzleGenerator(int size) {
+		this(size, new Random());
+	}
+
+	/**
+	 * Creates a generator for one board size that repeats its puzzles for the same seed.
+	 * @param size dimension of the boards to generate.
+	 * @param seed seed of the random choices.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public PuzzleGenerator(int size, long seed) {
+		this(size, new Random(seed));
+	}
+
+	private PuzzleGenerator(int size, Random random) {
+		geometry = Geometry.of(size);
+		this.size = size;
+		cellCount = size*size;
+		this.random = random;
+		solver = new PropagationSolver(size);
+		rater = new LogicalSolver(size);
+		order = new int[cellCount];
+		countFirst = size <= 9;
+		for(int i=0; i<cellCount; i++)
+			order[i] = i;
+	}
+
+	/**
+	 * Getter for {@link #size}.
+	 * @return {@link #size}
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the hardest level the generator reaches on a board size within its time budget.
+	 * Up to 25x25 every level is reached; from 36x36 up the budget runs out while singles
+	 * still solve the puzzle with many clues left, so only {@link #EASY} is reached reliably.
+	 * @param size dimension of the board.
+	 * @return {@link #HARD}, or {@link #EASY} on boards larger than 25x25.
+	 * @throws IllegalArgumentException if the size is not supported by {@link Geometry}.
+	 */
+	public static int highestLevel(int size) {
+		Geometry.dimOf(size);
+		return size <= MAX_LEVELED_SIZE ? HARD : EASY;
+	}
+
+	/**
+	 * Getter for {@link #lastLevel}. Every puzzle fits exactly one level, which is the level
+	 * asked for unless the attempts or the time budget ran out first; on large boards harder
+	 * levels often cannot be reached, so callers should label puzzles with this level.
+	 * @return {@link #lastLevel}
+	 */
+	public int getLastLevel() {
+		return lastLevel;
+	}
+
+	/**
+	 * Generates a puzzle of a level, or the closest puzzle found if none fits it in time;
+	 * {@link #getLastLevel()} then tells the level of the puzzle returned.
+	 * @param level {@link #EASY}, {@link #MEDIUM} or {@link #HARD}.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the level is not one of the three.
+	 */
+	public byte[] generate(int level) {
+		if(level < EASY || level > HARD)
+			throw new IllegalArgumentException("Unknown difficulty level: " + level);
+		long deadline = System.nanoTime() + TIME_BUDGET*1_000_000;
+		byte[] best = null;
+		int bestDistance = Integer.MAX_VALUE, bestScore = 0, bestClues = 0;
+		for(int attempt=0; attempt<ATTEMPTS && bestDistance > 0; attempt++) {
+			byte[] puzzle = generateSolution();
+			shuffleOrder();
+			int clues = remove(puzzle, Technique.NAKED_SINGLE, level == MEDIUM ? 0 : easyFloor(), deadline);
+			if(level == HARD)
+				clues = remove(puzzle, Technique.HIDDEN_TRIPLE, 0, deadline);
+			int score = score(puzzle);
+			int distance = distance(score, clues, level);
+			if(distance < bestDistance) {
+				best = puzzle;
+				bestDistance = distance;
+				bestScore = score;
+				bestClues = clues;
+			}
+			if(System.nanoTime() > deadline)
+				break;
+		}
+		lastLevel = bestDistance == 0 ? level : levelOf(bestScore, bestClues);
+		return best;
+	}
+
+	/**
+	 * Generates a random full solution grid.
+	 * <p>
+	 * Up to 16x16 the sub-grids on the diagonal, which share no unit, are filled at random and
+	 * the rest is solved. Larger boards, or a search that runs over its budget, start from a
+	 * pattern grid instead, shuffled by relabeling values and permuting rows and columns
+	 * within their bands.
+	 * @return cell values indexed {@code x*size + y}.
+	 */
+	public byte[] generateSolution() {
+		if(3*size <= 64) {
+			byte[] grid = new byte[cellCount];
+			int cellDim = geometry.getCellDim();
+			for(int box=0; box<cellDim; box++) {
+				byte[] values = permutation();
+				for(int k=0; k<size; k++)
+					grid[geometry.unitCell(2*size + box*(cellDim+1), k)] = values[k];
+			}
+			byte[] solution = solver.solve(grid, new SearchMonitor(SOLUTION_NODES, SearchMonitor.UNLIMITED));
+			if(solution != null)
+				return solution;
+		}
+		return shuffledPattern();
+	}
+
+	/** Returns a pattern grid with its values relabeled and its rows and columns permuted. */
+	private byte[] shuffledPattern() {
+		int cellDim = geometry.getCellDim();
+		byte[] labels = permutation();
+		int[] rows = linePermutation(), cols = linePermutation();
+		byte[] grid = new byte[cellCount];
+		for(int x=0; x<size; x++)
+			for(int y=0; y<size; y++) {
+				int r = rows[x], c = cols[y];
+				grid[x*size + y] = labels[((r%cellDim)*cellDim + r/cellDim + c) % size];
+			}
+		return grid;
+	}
+
+	/** Returns the values 1 to {@link #size} in random order. */
+	private byte[] permutation() {
+		byte[] values = new byte[size];
+		for(int i=0; i<size; i++) {
+			int j = random.nextInt(i+1);
+			values[i] = values[j];
+			values[j] = (byte)(i+1);
+		}
+		return values;
+	}
+
+	/** Returns a random order of lines that keeps every band together. */
+	private int[] linePermutation() {
+		int cellDim = geometry.getCellDim();
+		byte[] bands = new byte[cellDim];
+		for(int i=0; i<cellDim; i++) {
+			int j = random.nextInt(i+1);
+			bands[i] = bands[j];
+			bands[j] = (byte)i;
+		}
+		int[] lines = new int[size];
+		for(int band=0; band<cellDim; band++)
+			for(int i=0; i<cellDim; i++) {
+				int j = random.nextInt(i+1);
+				lines[band*cellDim + i] = lines[band*cellDim + j];
+				lines[band*cellDim + j] = bands[band]*cellDim + i;
+			}
+		return lines;
+	}
+
+	/** Shuffles {@link #order}. */
+	private void shuffleOrder() {
+		for(int i=cellCount-1; i>0; i--) {
+			int j = random.nextInt(i+1);
+			int cell = order[i];
+			order[i] = order[j];
+			order[j] = cell;
+		}
+	}
+
+	/**
+	 * Removes clues, in {@link #order}, while some techniques still solve the puzzle.
+	 * @param hardest hardest technique allowed.
+	 * @param floor number of clues to keep at least.
+	 * @return number of clues left.
+	 */
+	private int remove(byte[] grid, Technique hardest, int floor, long deadline) {
+		int clues = 0;
+		for(byte value : grid)
+			if(value != 0)
+				clues++;
+		for(int i=0; i<cellCount && clues > floor && System.nanoTime() < deadline; i++) {
+			int cell = order[i];
+			byte value = grid[cell];
+			if(value == 0)
+				continue;
+			grid[cell] = 0;
+			if(!(countFirst && hardest != Technique.NAKED_SINGLE && hasSeveralSolutions(grid)) && rater.rate(grid, hardest).isSolved())
+				clues--;
+			else
+				grid[cell] = value;
+		}
+		return clues;
+	}
+
+	/**
+	 * Tells cheaply that no technique can solve a puzzle because it has several solutions.
+	 * @return true if a second solution was found within {@link #CHECK_NODES} nodes.
+	 */
+	private boolean hasSeveralSolutions(byte[] grid) {
+		return solver.countSolutions(grid, 2, new SearchMonitor(CHECK_NODES, SearchMonitor.UNLIMITED)) > 1;
+	}
+
+	/** Smallest number of clues an easy puzzle keeps. */
+	private int easyFloor() {
+		return cellCount*4/9;
+	}
+
+	/** Rates a puzzle, scoring one the techniques cannot solve above every technique. */
+	private int score(byte[] grid) {
+		LogicalSolver.Rating rating = rater.rate(grid);
+		return rating.isSolved() ? rating.getScore() : Technique.HIDDEN_TRIPLE.getWeight() + 1;
+	}
+
+	/** Returns the one level a puzzle fits, from its rating score and its clue count. */
+	private int levelOf(int score, int clues) {
+		for(int level=HARD; level>EASY; level--)
+			if(distance(score, clues, level) == 0)
+				return level;
+		return EASY;
+	}
+
+	/**
+	 * Measures how far a puzzle is from a level, from its rating score and its clue count.
+	 * @return 0 if the puzzle fits the level, larger the further it is.
+	 */
+	private int distance(int score, int clues, int level) {
+		switch(level) {
+		case EASY:
+			return Math.max(0, score - Technique.NAKED_SINGLE.getWeight()) + Math.max(0, easyFloor() - clues);
+		case MEDIUM:
+			return Math.max(0, score - Technique.NAKED_SINGLE.getWeight()) + Math.max(0, clues - easyFloor() + 1);
+		default:
+			return Math.max(0, Technique.NAKED_SINGLE.getWeight() + 1 - score);
+		}
+	}
+}
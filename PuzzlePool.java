@@ -0,0 +1,255 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of ready puzzles keyed by board size and difficulty level, so a new game starts at once.
+ * <p>
+ * A low-priority background thread keeps every requested (size, level) pair filled up to a
+ * watermark with puzzles from {@link PuzzleGenerator}. {@link #take(int, int)} removes a ready
+ * puzzle in constant time and asks for a refill; when the pair has run dry it generates the
+ * puzzle on the calling thread instead. Levels a size cannot reach are served at the
+ * {@link PuzzleGenerator#highestLevel(int) highest level} it can. A refill files a puzzle
+ * that falls short of its level under the level it reached, and after a few such puzzles
+ * leaves the pair until its next take so that other pairs are not starved. The pool counts hits, misses and the time spent on
+ * background refills.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PuzzlePool {
+	/** Ready puzzles kept per size and level unless configured otherwise. */
+	public static final int DEFAULT_WATERMARK = 3;
+	/** Puzzles one refill may generate short of their level before it waits for the next take. */
+	private static final int MAX_MISSED_LEVELS = 3;
+	/** System property overriding the watermark of the {@link #getShared() shared} pool. */
+	public static final String WATERMARK_PROPERTY = "sudoku.pool.watermark";
+
+	/** Watermark of every pair of the pool. */
+	private final int watermark;
+	/** Puzzles of each pair, keyed by {@link #key(int, int)}. */
+	private final ConcurrentMap<Integer, Slot> slots = new ConcurrentHashMap<>();
+	/** Background thread generating puzzles. */
+	private final ExecutorService refiller;
+	/** Generators of the background thread, by board size; only that thread uses them. */
+	private final Map<Integer, PuzzleGenerator> generators = new HashMap<>();
+	/** Puzzles taken ready from the pool. */
+	private final LongAdder hits = new LongAdder();
+	/** Puzzles generated by the caller because the pool had none. */
+	private final LongAdder misses = new LongAdder();
+	/** Puzzles generated by the background thread. */
+	private final LongAdder refills = new LongAdder();
+	/** Total time the background thread spent generating, in nanoseconds. */
+	private final LongAdder refillNanos = new LongAdder();
+	/** Longest time the background thread spent on one puzzle, in nanoseconds. */
+	private final LongAccumulator maxRefillNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates a pool with its own background thread.
+	 * @param watermark ready puzzles to keep for each size and level.
+	 * @throws IllegalArgumentException if the watermark is negative.
+	 */
+	public PuzzlePool(int watermark) {
+		if(watermark < 0)
+			throw new IllegalArgumentException("Watermark must not be negative: " + watermark);
+		this.watermark = watermark;
+		refiller = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "Sudoku puzzle pool");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns the pool shared by every board of the game. Its watermark is
+	 * {@link #DEFAULT_WATERMARK} unless the {@value #WATERMARK_PROPERTY} system property sets another.
+	 * @return the shared pool.
+	 */
+	public static PuzzlePool getShared() {
+		return Shared.POOL;
+	}
+
+	/**
+	 * Getter for {@link #watermark}.
+	 * @return {@link #watermark}
+	 */
+	public int getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * Asks the background thread to fill a size and level up to the watermark ahead of use.
+	 * @param size dimension of the board.
+	 * @param level difficulty level, from {@link PuzzleGenerator#EASY} to {@link PuzzleGenerator#HARD}.
+	 * @throws IllegalArgumentException if the size or level is not supported.
+	 */
+	public void prefill(int size, int level) {
+		schedule(slot(size, level));
+	}
+
+	/**
+	 * Takes a puzzle of a size and level, generating it on the calling thread if none is ready,
+	 * and asks the background thread to refill the pair.
+	 * @param size dimension of the board.
+	 * @param level difficulty level, from {@link PuzzleGenerator#EASY} to {@link PuzzleGenerator#HARD}.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells; the solution is unique.
+	 * @throws IllegalArgumentException if the size or level is not supported.
+	 */
+	public byte[] take(int size, int level) {
+		Slot slot = slot(size, level);
+		byte[] puzzle = slot.puzzles.poll();
+		if(puzzle != null) {
+			slot.count.decrementAndGet();
+			hits.increment();
+		}
+		else {
+			misses.increment();
+			puzzle = new PuzzleGenerator(size).generate(slot.level);
+		}
+		schedule(slot);
+		return puzzle;
+	}
+
+	/**
+	 * Returns the number of puzzles ready for a size and level.
+	 * @param size dimension of the board.
+	 * @param level difficulty level.
+	 * @return number of ready puzzles.
+	 * @throws IllegalArgumentException if the size is not supported.
+	 */
+	public int available(int size, int level) {
+		Slot slot = slots.get(key(size, Math.min(level, PuzzleGenerator.highestLevel(size))));
+		return slot == null ? 0 : slot.count.get();
+	}
+
+	/**
+	 * Returns the number of puzzles taken ready from the pool.
+	 * @return number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of puzzles generated by callers because none was ready.
+	 * @return number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of puzzles generated by the background thread.
+	 * @return number of refills.
+	 */
+	public long getRefills() {
+		return refills.sum();
+	}
+
+	/**
+	 * Returns the total time the background thread spent generating puzzles.
+	 * @return refill time in nanoseconds.
+	 */
+	public long getRefillNanos() {
+		return refillNanos.sum();
+	}
+
+	/**
+	 * Returns the longest time the background thread spent generating one puzzle.
+	 * @return refill latency in nanoseconds, 0 before the first refill.
+	 */
+	public long getMaxRefillNanos() {
+		return maxRefillNanos.get();
+	}
+
+	/** Returns the slot of a pair, creating it on first use; the level is clamped to what the size reaches. */
+	private Slot slot(int size, int level) {
+		if(level < PuzzleGenerator.EASY || level > PuzzleGenerator.HARD)
+			throw new IllegalArgumentException("Unknown difficulty level: " + level);
+		int reached = Math.min(level, PuzzleGenerator.highestLevel(size));
+		return slots.computeIfAbsent(key(size, reached), key -> new Slot(size, reached));
+	}
+
+	/** Returns the key of a pair. */
+	private static int key(int size, int level) {
+		return size << 2 | level;
+	}
+
+	/** Queues a refill of a slot unless one is already queued or the slot is full. */
+	private void schedule(Slot slot) {
+		if(slot.count.get() < watermark && slot.scheduled.compareAndSet(false, true))
+			refiller.execute(() -> refill(slot));
+	}
+
+	/** Fills a slot up to the watermark, or until too many puzzles miss its level; runs on the background thread. */
+	private void refill(Slot slot) {
+		int missed = 0;
+		try {
+			PuzzleGenerator generator = generators.computeIfAbsent(slot.size, PuzzleGenerator::new);
+			while(slot.count.get() < watermark && missed < MAX_MISSED_LEVELS) {
+				long start = System.nanoTime();
+				byte[] puzzle = generator.generate(slot.level);
+				long elapsed = System.nanoTime() - start;
+				refills.increment();
+				refillNanos.add(elapsed);
+				maxRefillNanos.accumulate(elapsed);
+				if(generator.getLastLevel() != slot.level) { // Ran out of time short of the level
+					missed++;
+					Slot reached = slots.get(key(slot.size, generator.getLastLevel()));
+					if(reached != null && reached.count.get() < watermark)
+						reached.add(puzzle);
+					continue;
+				}
+				slot.add(puzzle);
+			}
+		}
+		finally {
+			slot.scheduled.set(false);
+		}
+		if(missed < MAX_MISSED_LEVELS)
+			schedule(slot); // A take may have slipped in before the flag was cleared
+	}
+
+	/** Ready puzzles of one size and level. */
+	private static final class Slot {
+		/** Dimension of the boards. */
+		private final int size;
+		/** Difficulty level of the puzzles. */
+		private final int level;
+		/** Ready puzzles, oldest first. */
+		private final Queue<byte[]> puzzles = new ConcurrentLinkedQueue<>();
+		/** Number of puzzles in {@link #puzzles}, kept apart because counting the queue is linear. */
+		private final AtomicInteger count = new AtomicInteger();
+		/** True while a refill of the slot is queued or running. */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private Slot(int size, int level) {
+			this.size = size;
+			this.level = level;
+		}
+
+		/** Adds a ready puzzle. */
+		private void add(byte[] puzzle) {
+			puzzles.add(puzzle);
+			count.incrementAndGet();
+		}
+	}
+
+	/** Holder of the shared pool, created on first use. */
+	private static final class Shared {
+		/** The shared pool. */
+		private static final PuzzlePool POOL = new PuzzlePool(Integer.getInteger(WATERMARK_PROPERTY, DEFAULT_WATERMARK));
+	}
+}
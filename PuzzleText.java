@@ -0,0 +1,90 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.Arrays;
+
+/**
+ * One-line text format of Sudoku puzzles, as used by puzzle corpora.
+ * <p>
+ * A puzzle is written as {@code size*size} symbols, row by row: {@code 1}-{@code 9} for values
+ * one to nine, {@code A}-{@code P} (either case) for ten to twenty-five, and {@code .} or
+ * {@code 0} for empty cells. A 9x9 puzzle therefore takes 81 characters and a 16x16 puzzle
+ * 256; boards larger than 25x25 have no text form.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class PuzzleText {
+	/** Largest board dimension the text format can express. */
+	public static final int MAX_SIZE = 25;
+	/** Symbols of the values, indexed by value; index 0 is the empty cell. */
+	private static final char[] SYMBOLS = ".123456789ABCDEFGHIJKLMNOP".toCharArray();
+	/** Value of each ASCII symbol, -1 for characters that are not symbols. */
+	static final byte[] VALUES = new byte[128];
+
+	static {
+		Arrays.fill(VALUES, (byte)-1);
+		VALUES['.'] = VALUES['0'] = 0;
+		for(int value=1; value<=MAX_SIZE; value++) {
+			VALUES[SYMBOLS[value]] = (byte)value;
+			VALUES[Character.toLowerCase(SYMBOLS[value])] = (byte)value;
+		}
+	}
+
+	private PuzzleText() {
+	}
+
+	/**
+	 * Returns the board dimension of a puzzle line.
+	 * @param length number of symbols in the line.
+	 * @return dimension of the board.
+	 * @throws IllegalArgumentException if no supported board has that many cells.
+	 */
+	public static int sizeOf(int length) {
+		int size = (int)Math.round(Math.sqrt(length));
+		if(size*size != length || size > MAX_SIZE)
+			throw new IllegalArgumentException("No puzzle has " + length + " cells");
+		Geometry.dimOf(size);
+		return size;
+	}
+
+	/**
+	 * Parses a puzzle line.
+	 * @param line symbols of the puzzle, without line terminator.
+	 * @return cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @throws IllegalArgumentException if the line has the wrong length or an unknown symbol.
+	 */
+	public static byte[] parse(CharSequence line) {
+		int size = sizeOf(line.length());
+		byte[] grid = new byte[line.length()];
+		for(int i=0; i<grid.length; i++)
+			grid[i] = (byte)valueOf(line.charAt(i), size);
+		return grid;
+	}
+
+	/**
+	 * Returns the value of one symbol.
+	 * @param symbol symbol to decode.
+	 * @param size dimension of the board.
+	 * @return value of the symbol, 0 for an empty cell.
+	 * @throws IllegalArgumentException if the symbol is not a value of the board.
+	 */
+	public static int valueOf(char symbol, int size) {
+		int value = symbol < VALUES.length ? VALUES[symbol] : -1;
+		if(value < 0 || value > size)
+			throw new IllegalArgumentException("Symbol '" + symbol + "' is not a value of a " + size + "x" + size + " board");
+		return value;
+	}
+
+	/**
+	 * Writes a grid as a puzzle line.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @return symbols of the grid.
+	 */
+	public static String format(byte[] grid) {
+		sizeOf(grid.length);
+		char[] line = new char[grid.length];
+		for(int i=0; i<line.length; i++)
+			line[i] = SYMBOLS[grid[i]];
+		return new String(line);
+	}
+}
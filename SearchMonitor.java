@@ -0,0 +1,108 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancellation token, budget and node counter shared by a search and the threads watching it.
+ * <p>
+ * Solvers report the nodes they expand in batches through {@link #checkpoint(long)} and stop
+ * once it returns false: when another thread called {@link #cancel()}, when the node budget
+ * is spent or when the wall-clock budget has run out. Any thread may read the counters while
+ * the search runs, for example to show progress.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class SearchMonitor {
+	/** Budget meaning no limit. */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	/** Maximum number of nodes to expand. */
+	private final long nodeBudget;
+	/** {@link System#nanoTime()} after which the search must stop. */
+	private final long deadline;
+	/** {@link System#nanoTime()} when the monitor was created. */
+	private final long start;
+	/** Nodes expanded so far. */
+	private final AtomicLong nodes = new AtomicLong();
+	/** True once {@link #cancel()} was called. */
+	private volatile boolean cancelled;
+	/** True once the node or time budget ran out. */
+	private volatile boolean exhausted;
+
+	/**
+	 * Creates a monitor without budgets.
+	 */
+	public SearchMonitor() {
+		this(UNLIMITED, UNLIMITED);
+	}
+
+	/**
+	 * Creates a monitor with budgets; the time budget starts now.
+	 * @param nodeBudget maximum number of nodes to expand, or {@link #UNLIMITED}.
+	 * @param timeBudgetMillis maximum wall-clock time in milliseconds, or {@link #UNLIMITED}.
+	 */
+	public SearchMonitor(long nodeBudget, long timeBudgetMillis) {
+		if(nodeBudget < 1 || timeBudgetMillis < 1)
+			throw new IllegalArgumentException("Budgets must be positive");
+		this.nodeBudget = nodeBudget;
+		start = System.nanoTime();
+		deadline = timeBudgetMillis == UNLIMITED ? UNLIMITED : start + timeBudgetMillis*1_000_000;
+	}
+
+	/** Asks the search to stop at its next checkpoint. */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Getter for {@link #cancelled}.
+	 * @return {@link #cancelled}
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Getter for {@link #exhausted}.
+	 * @return {@link #exhausted}
+	 */
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * Determines if the search was told to stop, by cancellation or a spent budget.
+	 * @return true if the search should stop, false otherwise.
+	 */
+	public boolean isStopped() {
+		return cancelled || exhausted;
+	}
+
+	/**
+	 * Returns the nodes expanded so far.
+	 * @return number of nodes.
+	 */
+	public long getNodes() {
+		return nodes.get();
+	}
+
+	/**
+	 * Returns the time since the monitor was created.
+	 * @return elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Adds a batch of expanded nodes and checks whether the search may go on.
+	 * @param expanded nodes expanded since the last checkpoint.
+	 * @return true if the search may continue, false if it must stop.
+	 */
+	public boolean checkpoint(long expanded) {
+		if(nodes.addAndGet(expanded) >= nodeBudget || (deadline != UNLIMITED && System.nanoTime() - deadline >= 0))
+			exhausted = true;
+		return !isStopped();
+	}
+}
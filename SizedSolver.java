@@ -0,0 +1,57 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+/**
+ * Base of the {@link Solver} engines built on solvers that handle one board size each.
+ * One solver is created per size on first use and kept for the engine's lifetime.
+ *
+ * @param <T> type of the per-size solver.
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+abstract class SizedSolver<T> implements Solver {
+	/** Solvers indexed by sub-grid dimension, created on first use. */
+	private final Object[] bySize = new Object[9];
+
+	/**
+	 * Creates the solver of one board size.
+	 * @param size dimension of the boards.
+	 * @return new solver.
+	 */
+	protected abstract T create(int size);
+
+	/**
+	 * Solves a puzzle with the solver of its size.
+	 * @param solver solver of the puzzle's size.
+	 * @param grid cell values of the puzzle.
+	 * @return solved cell values, or null if there is no solution.
+	 */
+	protected abstract byte[] solve(T solver, byte[] grid);
+
+	/**
+	 * Counts the solutions of a puzzle with the solver of its size.
+	 * @param solver solver of the puzzle's size.
+	 * @param grid cell values of the puzzle.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	protected abstract int countSolutions(T solver, byte[] grid, int limit);
+
+	@Override
+	public byte[] solve(BoardSnapshot snapshot) {
+		return solve(forSize(snapshot.getSize()), snapshot.getValues());
+	}
+
+	@Override
+	public int countSolutions(BoardSnapshot snapshot, int limit) {
+		return countSolutions(forSize(snapshot.getSize()), snapshot.getValues(), limit);
+	}
+
+	/** Returns the solver of a board size, creating it on first use. */
+	@SuppressWarnings("unchecked")
+	private T forSize(int size) {
+		int cellDim = Geometry.dimOf(size);
+		if(bySize[cellDim] == null)
+			bySize[cellDim] = create(size);
+		return (T)bySize[cellDim];
+	}
+}
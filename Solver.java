@@ -0,0 +1,46 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+/**
+ * Service interface of the Sudoku solving engines.
+ * <p>
+ * Engines are found by {@link SolverRegistry} through {@link java.util.ServiceLoader}: an
+ * implementation needs a public no-argument constructor and a line in
+ * {@code META-INF/services/edu.utep.cs.cs3331.ard.sudoku.model.Solver}. Every operation works
+ * on the values of a {@link BoardSnapshot}, of any size the engine supports. Unless an engine
+ * says otherwise, it is not thread-safe; use one per thread.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public interface Solver {
+
+	/**
+	 * Returns the name the engine is registered under.
+	 * @return short, unique engine name.
+	 */
+	String getName();
+
+	/**
+	 * Finds a solution of a snapshot's values.
+	 * @param snapshot puzzle to solve.
+	 * @return solved cell values indexed {@code x*size + y}, or null if there is no solution.
+	 */
+	byte[] solve(BoardSnapshot snapshot);
+
+	/**
+	 * Counts the solutions of a snapshot's values, stopping once a limit is reached.
+	 * @param snapshot puzzle to solve.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions, at most {@code limit}.
+	 */
+	int countSolutions(BoardSnapshot snapshot, int limit);
+
+	/**
+	 * Determines if a snapshot's values have exactly one solution.
+	 * @param snapshot puzzle to check.
+	 * @return true if the solution is unique, false otherwise.
+	 */
+	default boolean isUnique(BoardSnapshot snapshot) {
+		return countSolutions(snapshot, 2) == 1;
+	}
+}
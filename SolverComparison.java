@@ -0,0 +1,147 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs every registered {@link Solver} engine over the same puzzle corpus and compares them.
+ * <p>
+ * Puzzles are read in the {@link PuzzleText} format and grouped by board size and by the
+ * {@link LogicalSolver} score of their hardest technique. For each group and engine the runner
+ * reports solves per second, median and 99th percentile latency, and bytes allocated per
+ * solve by every thread of the JVM, so that engines handing work to pool threads are charged
+ * for it, then names the fastest engine of the group.
+ * <p>
+ * Usage: {@code SolverComparison <corpus> [max-puzzles] [passes]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class SolverComparison {
+	/** Puzzles read from the corpus unless told otherwise. */
+	private static final int DEFAULT_MAX_PUZZLES = 10_000;
+	/** Measured passes over each group unless told otherwise; one more pass warms up. */
+	private static final int DEFAULT_PASSES = 3;
+
+	private SolverComparison() {
+	}
+
+	/**
+	 * Runs the comparison.
+	 * @param args corpus path, then optionally the maximum number of puzzles and of passes.
+	 * @throws IOException if the corpus cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: SolverComparison <corpus> [max-puzzles] [passes]");
+			System.exit(2);
+		}
+		int maxPuzzles = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_PUZZLES;
+		int passes = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PASSES;
+		Map<String, List<BoardSnapshot>> groups = readGroups(args[0], maxPuzzles);
+		List<Solver> engines = SolverRegistry.load();
+		System.out.printf("%-10s %-11s %8s %11s %9s %9s %12s%n", "group", "engine", "puzzles", "solves/s", "p50 us", "p99 us", "bytes/solve");
+		for(Map.Entry<String, List<BoardSnapshot>> group : groups.entrySet()) {
+			String fastest = null;
+			double best = 0;
+			for(Solver engine : engines) {
+				double rate = measure(group.getKey(), engine, group.getValue(), passes);
+				if(rate > best) {
+					best = rate;
+					fastest = engine.getName();
+				}
+			}
+			System.out.printf("%-10s fastest: %s%n", group.getKey(), fastest);
+		}
+	}
+
+	/** Reads a corpus into groups keyed by size and difficulty score, in sorted order. */
+	private static Map<String, List<BoardSnapshot>> readGroups(String corpus, int maxPuzzles) throws IOException {
+		Map<String, List<BoardSnapshot>> groups = new TreeMap<>();
+		LogicalSolver[] raters = new LogicalSolver[PuzzleText.MAX_SIZE + 1];
+		try(BufferedReader in = Files.newBufferedReader(Paths.get(corpus), StandardCharsets.US_ASCII)) {
+			String line;
+			int read = 0;
+			while(read < maxPuzzles && (line = in.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+				byte[] grid = PuzzleText.parse(line);
+				int size = PuzzleText.sizeOf(grid.length);
+				if(raters[size] == null)
+					raters[size] = new LogicalSolver(size);
+				LogicalSolver.Rating rating = raters[size].rate(grid);
+				String key = String.format("%02dx%02d/%s", size, size, rating.isSolved() ? String.valueOf(rating.getScore()) : "99");
+				groups.computeIfAbsent(key, k -> new ArrayList<>()).add(BoardSnapshot.of(size, grid));
+				read++;
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * Measures one engine on one group and prints its row.
+	 * @return solves per second.
+	 */
+	private static double measure(String group, Solver engine, List<BoardSnapshot> puzzles, int passes) {
+		for(BoardSnapshot puzzle : puzzles) // warm-up pass, also checks the answers
+			check(engine, puzzle);
+		long[] latencies = new long[puzzles.size()*passes];
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		int n = 0;
+		for(int pass=0; pass<passes; pass++)
+			for(BoardSnapshot puzzle : puzzles) {
+				long t = System.nanoTime();
+				engine.solve(puzzle);
+				latencies[n++] = System.nanoTime() - t;
+			}
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		Arrays.sort(latencies);
+		double rate = n / (elapsed / 1e9);
+		System.out.printf("%-10s %-11s %8d %11.0f %9.1f %9.1f %12s%n", group, engine.getName(), puzzles.size(), rate,
+				latencies[n/2] / 1e3, latencies[Math.min(n-1, (int)(n*0.99))] / 1e3,
+				allocatedBefore < 0 ? "n/a" : String.valueOf(allocated / n));
+		return rate;
+	}
+
+	/** Fails loudly if an engine returns an invalid solution. */
+	private static void check(Solver engine, BoardSnapshot puzzle) {
+		byte[] solution = engine.solve(puzzle);
+		if(solution == null)
+			return;
+		byte[] grid = puzzle.getValues();
+		for(int i=0; i<grid.length; i++)
+			if(grid[i] != 0 && grid[i] != solution[i])
+				throw new IllegalStateException(engine.getName() + " changed a given");
+		if(!Geometry.of(puzzle.getSize()).isValidGrid(solution, 0))
+			throw new IllegalStateException(engine.getName() + " returned an invalid grid");
+	}
+
+	/**
+	 * Returns the bytes allocated so far by every live thread, the fork-join workers of the
+	 * parallel engine included, or -1 if the JVM cannot tell. Threads that end in between
+	 * take their count with them, so the difference may fall slightly short.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(!(threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		long total = 0;
+		for(long bytes : ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(threads.getAllThreadIds()))
+			if(bytes > 0) // -1 for a thread that ended since its id was taken
+				total += bytes;
+		return total;
+	}
+}
@@ -0,0 +1,47 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Finds the {@link Solver} engines available on the class path.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class SolverRegistry {
+
+	private SolverRegistry() {
+	}
+
+	/**
+	 * Creates one instance of every registered engine, in service-file order. When no
+	 * service file is on the class path, the built-in engines are returned instead.
+	 * @return new engine instances.
+	 */
+	public static List<Solver> load() {
+		List<Solver> engines = new ArrayList<>();
+		for(Solver engine : ServiceLoader.load(Solver.class))
+			engines.add(engine);
+		if(engines.isEmpty()) {
+			engines.add(new PropagationSolver.Engine());
+			engines.add(new DlxSolver.Engine());
+			engines.add(new ParallelSolver.Engine());
+		}
+		return engines;
+	}
+
+	/**
+	 * Creates an instance of the engine registered under a name.
+	 * @param name name of the engine.
+	 * @return new engine instance.
+	 * @throws IllegalArgumentException if no engine has that name.
+	 */
+	public static Solver load(String name) {
+		for(Solver engine : load())
+			if(engine.getName().equals(name))
+				return engine;
+		throw new IllegalArgumentException("Unknown solver engine: " + name);
+	}
+}
@@ -0,0 +1,162 @@
+package edu.utep.cs.cs3331.ard.sudoku.dialog;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import edu.utep.cs.cs3331.ard.sudoku.model.PropagationSolver;
+import edu.utep.cs.cs3331.ard.sudoku.model.SearchMonitor;
+
+/**
+ * Runs solver searches on worker threads so the event dispatch thread never waits on them.
+ * <p>
+ * Each submitted search gets a {@link Job} that doubles as its cancellation token and carries
+ * its node count and elapsed time. While the search runs, progress is reported on the event
+ * dispatch thread at most once every {@link #PROGRESS_INTERVAL} milliseconds; the final result
+ * is delivered there too.
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public class SolverService {
+	/** Milliseconds between two progress reports of a running job. */
+	public static final int PROGRESS_INTERVAL = 100;
+
+	/** Threads running the searches. */
+	private final ExecutorService workers;
+
+	/**
+	 * Creates a service with its own worker threads.
+	 * @param threads number of searches that can run at once.
+	 */
+	public SolverService(int threads) {
+		workers = Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "Sudoku solver");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts solving a puzzle on a worker thread. Call from the event dispatch thread.
+	 * @param grid cell values indexed {@code x*size + y}, 0 for empty cells.
+	 * @param size dimension of the board.
+	 * @param nodeBudget maximum number of nodes to expand, or {@link SearchMonitor#UNLIMITED}.
+	 * @param timeBudgetMillis maximum wall-clock time in milliseconds, or {@link SearchMonitor#UNLIMITED}.
+	 * @param progress called on the event dispatch thread while the job runs, may be null.
+	 * @param done called on the event dispatch thread once the job ends.
+	 * @return the running job.
+	 */
+	public Job submit(byte[] grid, int size, long nodeBudget, long timeBudgetMillis, Consumer<Job> progress, Consumer<Job> done) {
+		Job job = new Job(new SearchMonitor(nodeBudget, timeBudgetMillis));
+		Timer timer = new Timer(PROGRESS_INTERVAL, e -> {
+			if(progress != null && job.outcome == Outcome.RUNNING)
+				progress.accept(job);
+		});
+		timer.start();
+		workers.execute(() -> {
+			try {
+				job.solution = new PropagationSolver(size).solve(grid, job.monitor);
+				if(job.solution != null)
+					job.outcome = Outcome.SOLVED;
+				else if(job.monitor.isCancelled())
+					job.outcome = Outcome.CANCELLED;
+				else if(job.monitor.isExhausted())
+					job.outcome = Outcome.OUT_OF_BUDGET;
+				else
+					job.outcome = Outcome.NO_SOLUTION;
+			} catch(RuntimeException e) {
+				job.outcome = Outcome.FAILED;
+			} finally {
+				job.elapsedNanos = job.monitor.getElapsedNanos();
+				SwingUtilities.invokeLater(() -> {
+					timer.stop();
+					done.accept(job);
+				});
+			}
+		});
+		return job;
+	}
+
+	/** Stops the worker threads once the running jobs end. */
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	/**
+	 * Ways a job can end.
+	 */
+	public enum Outcome {
+		/** The search has not ended yet. */
+		RUNNING,
+		/** A solution was found. */
+		SOLVED,
+		/** The puzzle has no solution. */
+		NO_SOLUTION,
+		/** The job was cancelled. */
+		CANCELLED,
+		/** The node or time budget ran out. */
+		OUT_OF_BUDGET,
+		/** The solver threw an exception. */
+		FAILED
+	}
+
+	/**
+	 * One search submitted to the service.
+	 */
+	public static final class Job {
+		/** Cancellation token, budget and node counter of the search. */
+		private final SearchMonitor monitor;
+		/** How the job ended. */
+		private volatile Outcome outcome = Outcome.RUNNING;
+		/** Solution found, null if none. */
+		private volatile byte[] solution;
+		/** Run time of the finished job, -1 while it runs. */
+		private volatile long elapsedNanos = -1;
+
+		private Job(SearchMonitor monitor) {
+			this.monitor = monitor;
+		}
+
+		/** Asks the search to stop; {@code done} is still called. */
+		public void cancel() {
+			monitor.cancel();
+		}
+
+		/**
+		 * Getter for {@link #outcome}.
+		 * @return {@link #outcome}
+		 */
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * Getter for {@link #solution}.
+		 * @return {@link #solution}
+		 */
+		public byte[] getSolution() {
+			return solution;
+		}
+
+		/**
+		 * Returns the nodes expanded so far.
+		 * @return number of nodes.
+		 */
+		public long getNodes() {
+			return monitor.getNodes();
+		}
+
+		/**
+		 * Returns the time the job has run, or ran if it has ended.
+		 * @return elapsed time in milliseconds.
+		 */
+		public long getElapsedMillis() {
+			long nanos = elapsedNanos;
+			return (nanos < 0 ? monitor.getElapsedNanos() : nanos) / 1_000_000;
+		}
+	}
+}
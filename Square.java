@@ -1,131 +1,155 @@
 package edu.utep.cs.cs3331.ard.sudoku.model;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * Sudoku game board square consisting of a value and state.
- * 
+ * <p>
+ * A square is a lightweight view over one cell of a {@link CellStorage}. Squares taken from
+ * {@link Board#getGrid()} read and write the board directly; squares created through the
+ * public constructors are backed by a storage of their own.
+ *
  * @author      Anthony DesArmier
- * @version     1.2
+ * @version     1.3
  */
 public class Square {
-	
+
 	/** Various states a square may be in.
 	 * A fixed square is one that cannot be modified. */
 	public enum State {
 		NORMAL, SELECTED, ERROR, FIXED
 	}
-	
-	/** x coordinate of the square. */
+
+	/** Storage holding the square's cell. */
+	private final CellStorage cells;
+	/** Index of the square's cell within {@link #cells}. */
+	private final int index;
+	/** True if the square is backed by a storage of its own rather than a board. */
+	private final boolean detached;
+	/** x coordinate of a detached square. */
 	private int x;
-	/** y coordinate of the square. */
+	/** y coordinate of a detached square. */
 	private int y;
-	/** Value of the square. */
-	private int value;
-
-	/** States of the square. */
+	/** Set view of the square's states, created on first use. */
 	private Set<State> states;
-	
+
 	/** Creates a default empty square */
 	public Square() {
 		this(0, State.NORMAL);
 	}
-	
+
 	/** Creates a square with a given value and state. */
 	public Square(int value, State state) {
-		this.value = value;
-		states = new HashSet<>();
-		states.add(state);
+		this(new CellStorage(1, 1), 0, true);
+		cells.removeState(0, State.NORMAL);
+		cells.addState(0, state);
+		cells.setValue(0, value);
 	}
-	
-	/** 
+
+	/**
 	 * Constructor for the class Square.
 	 * @param x {@link x}
 	 * @param y {@link y}
 	 * @param value {@link value}
 	 */
 	public Square(int x, int y, int value) {
+		this(new CellStorage(1, 1), 0, true);
 		this.x = x;
 		this.y = y;
-		this.value = value;
+		cells.setValue(0, value);
 	}
-	
+
+	/**
+	 * Creates a view over a cell of a board's storage.
+	 * @param cells storage holding the cell.
+	 * @param index index of the cell.
+	 */
+	Square(CellStorage cells, int index) {
+		this(cells, index, false);
+	}
+
+	private Square(CellStorage cells, int index, boolean detached) {
+		this.cells = cells;
+		this.index = index;
+		this.detached = detached;
+	}
+
 	/**
 	 * Getter for {@link #value}.
 	 * @return {@link #value}
 	 */
 	public int getValue() {
-		return value;
+		return cells.getValue(index);
 	}
 
 	/**
 	 * Setter for {@link #value}.
 	 */
 	public void setValue(int value) {
-		this.value = value;
+		cells.setValue(index, value);
 	}
-	
+
 	/**
 	 * Getter for {@link #x}.
 	 * @return {@link #x}
 	 */
 	public int getX() {
-		return x;
+		return detached ? x : index / cells.getSize();
 	}
-	
+
 	/**
-	 * Setter for {@link #x}.
+	 * Setter for {@link #x}. Has no effect on squares viewing a board.
 	 */
 	public void setX(int x) {
 		this.x = x;
 	}
-	
+
 	/**
 	 * Getter for {@link #y}.
 	 * @return {@link #y}
 	 */
 	public int getY() {
-		return y;
+		return detached ? y : index % cells.getSize();
 	}
-	
+
 	/**
-	 * Setter for {@link #y}.
+	 * Setter for {@link #y}. Has no effect on squares viewing a board.
 	 */
 	public void setY(int y) {
 		this.y = y;
 	}
 
 	/**
-	 * Getter for {@link #states}.
+	 * Returns a live set view of the square's states.
 	 * @return {@link #states}
 	 */
 	public Set<State> getState() {
+		if(states == null)
+			states = new StateSet();
 		return states;
 	}
 
 	/**
-	 * Assigns one or more {@link #states}.
+	 * Assigns one or more states.
 	 * @param states one or more states to add.
 	 */
 	public void setState(State... states) {
 		for(State state : states)
-			this.states.add(state);
+			cells.addState(index, state);
 	}
-	
+
 	/**
-	 * Removes one or more {@link #states}.
+	 * Removes one or more states. Removing a state the square is not in has no effect.
 	 * @param states one or more states to remove.
 	 */
 	public void removeState(State... states) {
-		for(State state : states) {
-			if(this.states.contains(state))
-				this.states.remove(state);
-			else
-				System.out.printf("Tried to remove state that did not exist: %s%n", state.toString());
-		}
+		for(State state : states)
+			cells.removeState(index, state);
 	}
-	
+
 	/**
 	 * Compares this square's value with another value.
 	 * @param value value to compare with.
@@ -134,4 +158,63 @@ public class Square {
 	public boolean equals(int value ) {
 		return this.getValue()==value;
 	}
+
+	/** Set of states backed by the flag byte of the square's cell. */
+	private class StateSet extends AbstractSet<State> {
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof State && cells.hasState(index, (State)o);
+		}
+
+		@Override
+		public boolean add(State state) {
+			boolean absent = !cells.hasState(index, state);
+			cells.addState(index, state);
+			return absent;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if(!contains(o))
+				return false;
+			cells.removeState(index, (State)o);
+			return true;
+		}
+
+		@Override
+		public int size() {
+			return Integer.bitCount(cells.getFlags(index));
+		}
+
+		@Override
+		public Iterator<State> iterator() {
+			return new Iterator<State>() {
+				private int remaining = cells.getFlags(index);
+				private State last;
+
+				@Override
+				public boolean hasNext() {
+					return remaining != 0;
+				}
+
+				@Override
+				public State next() {
+					if(remaining == 0)
+						throw new NoSuchElementException();
+					last = State.values()[Integer.numberOfTrailingZeros(remaining)];
+					remaining &= remaining - 1;
+					return last;
+				}
+
+				@Override
+				public void remove() {
+					if(last == null)
+						throw new IllegalStateException();
+					cells.removeState(index, last);
+					last = null;
+				}
+			};
+		}
+	}
 }
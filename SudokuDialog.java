@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -31,8 +32,14 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import edu.utep.cs.cs3331.ard.sudoku.model.Board;
+import edu.utep.cs.cs3331.ard.sudoku.model.LogicalSolver;
+import edu.utep.cs.cs3331.ard.sudoku.model.PuzzleGenerator;
+import edu.utep.cs.cs3331.ard.sudoku.model.PuzzlePool;
+import edu.utep.cs.cs3331.ard.sudoku.model.SearchMonitor;
 
 /**Dialog template for playing simple Sudoku games.
  * @author		Yoonsik Cheon
@@ -52,6 +59,9 @@ public class SudokuDialog extends JFrame {
     /** Default difficulty of the Sudoku game board. */
     private final static int DEFAULT_DIFFICULTY = 1;
 
+    /** Milliseconds the Solve menu item may search before giving up. */
+    private final static long SOLVE_TIME_BUDGET = 10_000;
+
     /** Relative path to the resource directory. */
     private final static String RES_DIR = "/";
     
@@ -61,6 +71,15 @@ public class SudokuDialog extends JFrame {
     /** Sudoku board. */
     private Board board;
 
+    /** Runs the searches behind the Solve menu item off the event dispatch thread. */
+    private final SolverService solverService = new SolverService(1);
+
+    /** Search started by the Solve menu item, null if none is running. */
+    private SolverService.Job solving;
+
+    /** Board of the next game being generated off the event dispatch thread, null if none. */
+    private SwingWorker<Board, Void> loading;
+
     /** Special panel to display a Sudoku board. */
     private BoardPanel boardPanel;
 
@@ -80,19 +99,52 @@ public class SudokuDialog extends JFrame {
      * @param difficulty Sudoku game difficulty.
      */
     public SudokuDialog(int size, int difficulty) {
-    	this(DEFAULT_DIM, size, difficulty);
+    	this(dimensionFor(size), size, difficulty);
+    }
+    
+    /** Returns the dialog dimension for a board size, growing past 9x9 so squares stay readable.
+     * @param size Sudoku game board size.
+     * @return dialog dimension.
+     */
+    private static Dimension dimensionFor(int size) {
+    	if (size <= DEFAULT_SIZE)
+    		return DEFAULT_DIM;
+    	int boardSide = Math.min(size * 16, 896);
+    	return new Dimension(boardSide + 32, boardSide + 240);
+    }
+
+    /** Has the shared puzzle pool get games of every level ready for the New buttons and the current size.
+     * @param size Sudoku game board size.
+     */
+    private static void prefillPuzzles(int size) {
+    	PuzzlePool pool = PuzzlePool.getShared();
+    	for (int level = PuzzleGenerator.EASY; level <= PuzzleGenerator.HARD; level++) {
+    		pool.prefill(4, level);
+    		pool.prefill(9, level);
+    		pool.prefill(size, level);
+    	}
     }
     
-    /** Create a new dialog.
+    /** Create a new dialog. Generating the board may take seconds on large boards when no
+     * puzzle is ready, so the New buttons build it in the background instead.
      * @param dim dialog dimension.
      * @param size Sudoku game board size.
      * @param difficulty Sudoku game difficulty.
      */
     public SudokuDialog(Dimension dim, int size, int difficulty) {
+//      this(dim, new Board(JsonClient.requestBoard(size, difficulty)));
+        this(dim, new Board(size, difficulty));
+    }
+
+    /** Create a new dialog for a board already built.
+     * @param dim dialog dimension.
+     * @param board Sudoku game board.
+     */
+    private SudokuDialog(Dimension dim, Board board) {
         super("Sudoku");
         setSize(dim);
-//      board = new Board(JsonClient.requestBoard(size, difficulty));
-        board = new Board(size, difficulty);
+        this.board = board;
+        prefillPuzzles(board.getSize());
         boardPanel = new BoardPanel(board, this::boardClicked);
         this.setJMenuBar(makeMenuBar());       
         configureUI();
@@ -102,7 +154,12 @@ public class SudokuDialog extends JFrame {
         setLocationRelativeTo(null);
         setVisible(true);
         setResizable(false);
-        showMessage("Select an empty square and then a number to place.");
+        if (board.getSolutionCount() == 0)
+        	showMessage("This puzzle has no solution.");
+        else if (board.getSolutionCount() > 1)
+        	showMessage("This puzzle has more than one solution. Select an empty square and then a number to place.");
+        else
+        	showMessage("Select an empty square and then a number to place.");
     }
 
 	/**
@@ -136,6 +193,7 @@ public class SudokuDialog extends JFrame {
         board.update(new int[] {lastPainted[0], lastPainted[1], number});                        // Update board with current selection.
         boardPanel.repaint();                                                         
         playClick();
+        board.prefetchHint();                                                                    // Have the next hint ready before it is asked for.
         
 	if (board.isSolved()) {                                                                      // Check if new entry completed the game.
 		boardPanel.repaint();
@@ -147,6 +205,118 @@ public class SudokuDialog extends JFrame {
 	}   
 }
     
+    /**
+     * Callback to be invoked after the Undo or Redo menu item is clicked.
+     * @param changed true if a move was undone or redone.
+     */
+    private void historyClicked(boolean changed) {
+    	if (!changed) return;
+    	boardPanel.repaint();
+    	playClick();
+    	board.prefetchHint();
+    	if (board.isSolved()) {
+    		showMessage("Congratulations on your victory!!");
+    	}
+    }
+    
+    /**
+     * Callback to be invoked when the Check menu item is clicked.
+     * Reports every square currently in conflict with one of its peers.
+     */
+    private void checkClicked() {
+    	int conflicts = board.getConflicts().length;
+    	boardPanel.repaint();
+    	playClick();
+    	if (conflicts == 0)
+    		showMessage("No conflicts found.");
+    	else
+    		showMessage(conflicts + " conflicting squares found.");
+    }
+    
+    /**
+     * Callback to be invoked when the Hint menu item is clicked.
+     * Reports the next value that can be deduced and the technique that deduces it.
+     */
+    private void hintClicked() {
+    	if (board.isSolved()) return;
+    	playClick();
+    	board.getHintAsync().thenAccept(hint -> SwingUtilities.invokeLater(() -> showHint(hint)));  // Computed off the event dispatch thread unless prefetched.
+    }
+
+    /**
+     * Shows a hint in the message bar; runs on the event dispatch thread.
+     * @param hint hint to show, null if no value can be deduced.
+     */
+    private void showHint(LogicalSolver.Hint hint) {
+    	if (!isDisplayable()) return;                                                                // The dialog was closed meanwhile.
+    	if (hint == null) {
+    		showMessage("No value can be deduced from the current squares.");
+    		return;
+    	}
+    	String technique = hint.getTechnique().name().toLowerCase().replace('_', ' ');
+    	showMessage("Try " + hint.getValue() + " at (" + hint.getX() + ", " + hint.getY() + "), found by " + technique + ".");
+    }
+    
+    /**
+     * Callback to be invoked when the Solve menu item is clicked.
+     * Starts solving the puzzle from its given values in the background, or cancels the
+     * search if one is already running.
+     */
+    private void solveClicked() {
+    	if (board.isSolved()) return;
+    	playClick();
+    	if (solving != null) {
+    		solving.cancel();
+    		return;
+    	}
+    	showMessage("Solving... click Solve again to cancel.");
+    	solving = solverService.submit(board.getGivens(), board.getSize(), SearchMonitor.UNLIMITED, SOLVE_TIME_BUDGET,
+    			job -> showMessage("Solving... " + job.getNodes() + " positions searched."), this::solveFinished);
+    }
+    
+    /**
+     * Callback to be invoked on the event dispatch thread once a Solve search ends.
+     * Fills in every other square if a solution was found.
+     * @param job finished search.
+     */
+    private void solveFinished(SolverService.Job job) {
+    	solving = null;
+    	if (!isDisplayable()) return; // The dialog was closed; its board is gone
+    	String stats = " (" + job.getNodes() + " positions, " + job.getElapsedMillis() + " ms)";
+    	switch (job.getOutcome()) {
+    	case SOLVED:
+    		board.applySolution(job.getSolution());
+    		boardPanel.repaint();
+    		showMessage("Puzzle solved" + stats + ".");
+    		break;
+    	case NO_SOLUTION:
+    		showMessage("This puzzle has no solution" + stats + ".");
+    		break;
+    	case CANCELLED:
+    		showMessage("Solving cancelled" + stats + ".");
+    		break;
+    	case OUT_OF_BUDGET:
+    		showMessage("Gave up solving after " + SOLVE_TIME_BUDGET/1000 + " seconds" + stats + ".");
+    		break;
+    	default:
+    		showMessage("The solver failed.");
+    	}
+    }
+    
+    /**
+     * Cancels any running Solve search and stops the solver thread before closing the dialog,
+     * so that no search outlives the board it was solving.
+     */
+    @Override
+    public void dispose() {
+    	if (loading != null)
+    		loading.cancel(false);
+    	if (solving != null)
+    		solving.cancel();
+    	solverService.shutdown();
+    	super.dispose();
+    }
+    
     /**
      * Callback to be invoked when a new button is clicked.
      * If the current game is over, start a new game of the given size;
@@ -199,11 +369,41 @@ public class SudokuDialog extends JFrame {
     		playClick();
     		if(difficulty!=-1) {
     			difficulty = levels.get(difficulty);
-    			this.dispose();
-    			new SudokuDialog(DEFAULT_DIM, size, difficulty);
+    			startGame(size, difficulty);
     		}
     	}
     }    
+
+    /**
+     * Generates the board of a new game in the background, so that a puzzle the pool does not
+     * have ready yet leaves the dialog responsive, then replaces this dialog with the new game.
+     * @param size Sudoku game board size.
+     * @param difficulty Sudoku game difficulty.
+     */
+    private void startGame(int size, int difficulty) {
+    	if (loading != null) return;                                                                 // A new game is already on its way.
+    	showMessage("Generating a new " + size + "x" + size + " game...");
+    	loading = new SwingWorker<Board, Void>() {
+    		@Override
+    		protected Board doInBackground() {
+    			return new Board(size, difficulty);
+    		}
+
+    		@Override
+    		protected void done() {
+    			loading = null;
+    			if (isCancelled() || !isDisplayable()) return;                                      // The dialog was closed meanwhile.
+    			try {
+    				Board next = get();
+    				dispose();
+    				new SudokuDialog(dimensionFor(size), next);
+    			} catch (InterruptedException | ExecutionException e) {
+    				showMessage("Could not generate a new game: " + (e.getCause() != null ? e.getCause() : e).getMessage());
+    			}
+    		}
+    	};
+    	loading.execute();
+    }
     
     /**
      * Display the given string in the message bar.
@@ -262,8 +462,20 @@ public class SudokuDialog extends JFrame {
         item.getAccessibleContext().setAccessibleDescription("Play a new game");
  //       item.addActionListener(ActionListener e);
         menu1.add(item);       
-        menu1.add("Check");
-        menu1.add("Solve");
+        JMenuItem undo = new JMenuItem("Undo", KeyEvent.VK_U);
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ActionEvent.CTRL_MASK));
+        undo.addActionListener(e -> historyClicked(board.undo()));
+        menu1.add(undo);
+        JMenuItem redo = new JMenuItem("Redo", KeyEvent.VK_R);
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ActionEvent.CTRL_MASK));
+        redo.addActionListener(e -> historyClicked(board.redo()));
+        menu1.add(redo);
+        menu1.add("Check").addActionListener(e -> checkClicked());
+        JMenuItem hint = new JMenuItem("Hint", KeyEvent.VK_H);
+        hint.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, ActionEvent.CTRL_MASK));
+        hint.addActionListener(e -> hintClicked());
+        menu1.add(hint);
+        menu1.add("Solve").addActionListener(e -> solveClicked());
         menu1.add("Exit");
         
         JMenu menu2 = new JMenu("Help");
@@ -371,6 +583,11 @@ public class SudokuDialog extends JFrame {
     	List<Integer> sizes = new ArrayList<>();
     	sizes.add(4);
     	sizes.add(9);
+    	sizes.add(16);
+    	sizes.add(25);
+    	sizes.add(36);
+    	sizes.add(49);
+    	sizes.add(64);
     		
     	/** Sudoku game board levels. */
         List<Integer> levels = new ArrayList<>();
@@ -386,6 +603,8 @@ public class SudokuDialog extends JFrame {
     	if(size==-1)
     		System.exit(0);
     	size = sizes.get(size);
+    	while (levels.size() > PuzzleGenerator.highestLevel(size)) // Harder levels are out of reach on large boards
+    		levels.remove(levels.size() - 1);
 //    	List<Integer> levels = info.getLevels();
     	int difficulty = JOptionPane.showOptionDialog(null, "Choose Difficulty", "New Game",
 				JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, levels.toArray(), levels.get(0));
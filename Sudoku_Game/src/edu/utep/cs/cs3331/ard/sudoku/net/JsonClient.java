@@ -2,11 +2,27 @@ package edu.utep.cs.cs3331.ard.sudoku.net;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import javax.swing.JOptionPane;
 
@@ -22,14 +38,35 @@ import edu.utep.cs.cs3331.ard.sudoku.dialog.SudokuDialog;
  * <p>
  * See <a href="http://www.cs.utep.edu/cheon/ws/sudoku/">http://www.cs.utep.edu/cheon/ws/sudoku/</a>
  * Occasionally the API will hang on size 9 difficulty 3.
+ * <p>
+ * Every request has connect and read timeouts. The asynchronous requests run on a small pool
+ * of daemon threads and complete exceptionally with a {@link TimeoutException} once
+ * {@link #REQUEST_TIMEOUT} has passed, so the user interface never waits on the network.
+ * Connections are reused through the keep-alive cache of {@link HttpURLConnection}, which
+ * needs every response read to its end.
  * 
  * @author      Anthony DesArmier
- * @version     1.2.1
+ * @version     1.3
  */
 public class JsonClient {
+	/** Address of the Sudoku Web Service API. */
+	private static final String SERVICE = "http://www.cs.utep.edu/cheon/ws/sudoku/";
+	/** Milliseconds allowed to connect to the service. */
+	public static final int CONNECT_TIMEOUT = 5_000;
+	/** Milliseconds allowed between two reads of a response. */
+	public static final int READ_TIMEOUT = 10_000;
+	/** Milliseconds an asynchronous request may take in all. */
+	public static final long REQUEST_TIMEOUT = 15_000;
+	/** Requests running at once, no more than the keep-alive cache holds per host by default. */
+	private static final int MAX_REQUESTS = 4;
+	/** Daemon threads running the asynchronous requests. */
+	private static final ExecutorService REQUESTS = Executors.newFixedThreadPool(MAX_REQUESTS, daemon("Sudoku web service"));
+	/** Daemon thread expiring asynchronous requests that run over {@link #REQUEST_TIMEOUT}. */
+	private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(daemon("Sudoku web service timeouts"));
 	
 	/**
 	 * Retrieves and parses a JSON object supplied by a Sudoku Web Service API that provides various information.
+	 * Blocks until the response arrives; the user interface should use {@link #getInfoAsync()}.
 	 * @return JSONInfo containing various Sudoku Web Service API information, null if error occurred.
 	 * @see JsonInfo
 	 */
@@ -38,8 +75,8 @@ public class JsonClient {
 		InputStreamReader in = null;
 		JsonObject info = null;
 		try {
-			url = new URL("http://www.cs.utep.edu/cheon/ws/sudoku/info/");
-			in = new InputStreamReader(url.openStream());
+			url = new URL(SERVICE + "info/");
+			in = new InputStreamReader(openStream(url));
 			info = Json.parse(in).asObject();
 		} catch (MalformedURLException e) {
 			printError("Malformed URL.\n", e);
@@ -48,6 +85,26 @@ public class JsonClient {
 		} finally {
 			closeStream(in);
 		}
+		return info == null ? null : parseInfo(info); // The fetch failed or timed out
+	}
+
+	/**
+	 * Retrieves the Sudoku Web Service API information without blocking.
+	 * @return future of the information; it completes exceptionally if the request fails or
+	 *         takes longer than {@link #REQUEST_TIMEOUT}.
+	 * @see JsonInfo
+	 */
+	public static CompletableFuture<JsonInfo> getInfoAsync() {
+		return fetch(SERVICE + "info/", JsonClient::parseInfo);
+	}
+
+	/**
+	 * Parses a Sudoku Web Service API information object.
+	 * @param info JSON object of the information.
+	 * @return JSONInfo containing various Sudoku Web Service API information.
+	 * @see JsonInfo
+	 */
+	public static JsonInfo parseInfo(JsonObject info) {
 		JsonInfo jsonInfo = new JsonInfo();
 		JsonArray jsonSizes = info.get("sizes").asArray();
 		JsonArray jsonLevels = info.get("levels").asArray();
@@ -66,9 +123,10 @@ public class JsonClient {
 
 	/**
 	 * Retrieves and parses a JSON object supplied by a Sudoku Web Service API that provides a Sudoku game board based on given parameters.
+	 * Blocks until the response arrives; the user interface should use {@link #requestBoardAsync(int, int)}.
 	 * @param size dimension of the desired Sudoku board.
 	 * @param level difficulty level of the desired Sudoku board.
-	 * @return JSONBoard containing information representing a Sudoku game board.
+	 * @return JSONBoard containing information representing a Sudoku game board, null if error occurred.
 	 * @see JsonBoard
 	 */
 	public static JsonBoard requestBoard(int size, int level) {
@@ -76,8 +134,8 @@ public class JsonClient {
 		InputStreamReader in = null;
 		JsonObject board = null;
 		try {
-			url = new URL(String.format("http://www.cs.utep.edu/cheon/ws/sudoku/new/?size=%d&level=%d", size, level));
-			in = new InputStreamReader(url.openStream());
+			url = new URL(boardAddress(size, level));
+			in = new InputStreamReader(openStream(url));
 			board = Json.parse(in).asObject();
 		} catch (MalformedURLException e) {
 			printError("Malformed URL.\n", e);
@@ -86,22 +144,164 @@ public class JsonClient {
 		} finally {
 			closeStream(in);
 		}
-		JsonBoard jsonBoard = new JsonBoard();
-		JsonArray jsonList;
-		boolean response = board.getBoolean("response", false);
-		if(!response)
+		if(board == null) // The fetch failed or timed out
+			return null;
+		JsonBoard jsonBoard = parseBoard(board);
+		if(!jsonBoard.isResponse())
 			printError("API did not generate request.\n", new Exception());
-		jsonBoard.setResponse(response);
-		jsonBoard.setSize(Integer.valueOf(board.getString("size", "-1"))); // API returns size as a String
-		jsonList = board.get("squares").asArray();
-		for(JsonValue square:jsonList) {
-			int x = square.asObject().getInt("x", -1);
-			int y = square.asObject().getInt("y", -1);
-			int value = square.asObject().getInt("value", -1);
-			jsonBoard.addSquare(x, y, value);
-		}
 		return jsonBoard;
 	}
+
+	/**
+	 * Retrieves a Sudoku game board from the Sudoku Web Service API without blocking.
+	 * @param size dimension of the desired Sudoku board.
+	 * @param level difficulty level of the desired Sudoku board.
+	 * @return future of the board; it completes exceptionally if the request fails or takes
+	 *         longer than {@link #REQUEST_TIMEOUT}. A board the API refused to generate has
+	 *         {@link JsonBoard#isResponse()} false and gives the {@link JsonBoard#getReason() reason}.
+	 * @see JsonBoard
+	 */
+	public static CompletableFuture<JsonBoard> requestBoardAsync(int size, int level) {
+		return fetch(boardAddress(size, level), JsonClient::parseBoard);
+	}
+
+	/**
+	 * Opens the response of the Sudoku Web Service API to a board request, for decoders that
+	 * read the board while it streams in instead of parsing it whole.
+	 * @param size dimension of the desired Sudoku board.
+	 * @param level difficulty level of the desired Sudoku board.
+	 * @return reader of the JSON board object; the caller closes it.
+	 * @throws IOException if the connection fails.
+	 */
+	public static Reader openBoard(int size, int level) throws IOException {
+		return new InputStreamReader(openStream(new URL(boardAddress(size, level))), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses a Sudoku game board object in the format of the Sudoku Web Service API, whose size
+	 * may be given as a number or, as the API does, as a String.
+	 * @param board JSON object of the board.
+	 * @return JSONBoard containing information representing a Sudoku game board.
+	 * @see JsonBoard
+	 */
+	public static JsonBoard parseBoard(JsonObject board) {
+		JsonBoard jsonBoard = new JsonBoard();
+		jsonBoard.setResponse(board.getBoolean("response", false));
+		JsonValue reason = board.get("reason");
+		if(reason != null && reason.isString())
+			jsonBoard.setReason(reason.asString());
+		JsonValue size = board.get("size");
+		if(size == null)
+			jsonBoard.setSize(-1);
+		else
+			jsonBoard.setSize(size.isString() ? Integer.valueOf(size.asString()) : size.asInt()); // API returns size as a String
+		JsonValue squares = board.get("squares");
+		if(squares != null)
+			for(JsonValue square:squares.asArray()) {
+				int x = square.asObject().getInt("x", -1);
+				int y = square.asObject().getInt("y", -1);
+				int value = square.asObject().getInt("value", -1);
+				jsonBoard.addSquare(x, y, value);
+			}
+		return jsonBoard;
+	}
+
+	/** Returns the address of a new board request. */
+	private static String boardAddress(int size, int level) {
+		return String.format(SERVICE + "new/?size=%d&level=%d", size, level);
+	}
+
+	/**
+	 * Opens the response stream of an address with the connect and read timeouts set.
+	 * @param url address to read.
+	 * @return response stream.
+	 * @throws IOException if the connection fails or a timeout passes.
+	 */
+	private static InputStream openStream(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		return connection.getInputStream();
+	}
+
+	/**
+	 * Runs a request on the request threads and parses its response.
+	 * The request is cut off, and its connection closed, once {@link #REQUEST_TIMEOUT} passes
+	 * or the future is cancelled.
+	 * @param address address to read.
+	 * @param parser turns the response object into the result.
+	 * @return future of the result.
+	 */
+	private static <T> CompletableFuture<T> fetch(String address, Function<JsonObject, T> parser) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicReference<HttpURLConnection> connection = new AtomicReference<>();
+		Future<?> task = REQUESTS.submit(() -> {
+			try {
+				result.complete(parser.apply(read(address, connection)));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		ScheduledFuture<?> deadline = DEADLINES.schedule(() -> {
+			result.completeExceptionally(new TimeoutException("No response from " + address + " within " + REQUEST_TIMEOUT + " ms"));
+		}, REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+		result.whenComplete((value, failure) -> {
+			deadline.cancel(false);
+			if(failure != null) { // Timed out or cancelled: free the thread and drop the connection
+				task.cancel(true);
+				HttpURLConnection open = connection.get();
+				if(open != null)
+					open.disconnect();
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Reads a JSON object from an address, reading the response to its end so that the
+	 * connection goes back to the keep-alive cache.
+	 * @param address address to read.
+	 * @param connection receives the connection once it is open.
+	 * @return the response object.
+	 * @throws IOException if the request fails, a timeout passes or the status is not 200.
+	 */
+	private static JsonObject read(String address, AtomicReference<HttpURLConnection> connection) throws IOException {
+		HttpURLConnection http = (HttpURLConnection)new URL(address).openConnection();
+		connection.set(http);
+		http.setConnectTimeout(CONNECT_TIMEOUT);
+		http.setReadTimeout(READ_TIMEOUT);
+		http.setRequestProperty("Accept", "application/json");
+		int status = http.getResponseCode();
+		if(status != HttpURLConnection.HTTP_OK) {
+			try(InputStream error = http.getErrorStream()) {
+				drain(error);
+			}
+			throw new IOException("HTTP " + status + " from " + address);
+		}
+		try(InputStream body = http.getInputStream()) {
+			JsonObject object = Json.parse(new InputStreamReader(body, StandardCharsets.UTF_8)).asObject();
+			drain(body);
+			return object;
+		}
+	}
+
+	/** Reads a stream to its end. */
+	private static void drain(InputStream in) throws IOException {
+		if(in == null)
+			return;
+		byte[] skip = new byte[512];
+		while(in.read(skip) >= 0)
+			;
+	}
+
+	/** Returns a factory of named daemon threads. */
+	private static ThreadFactory daemon(String name) {
+		return task -> {
+			Thread thread = new Thread(task, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
 	
 	/** 
 	 * Closes an IO reader.
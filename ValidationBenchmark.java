@@ -0,0 +1,90 @@
+package edu.utep.cs.cs3331.ard.sudoku.model;
+
+/**
+ * Measures complete-grid validation on every supported board size.
+ * <p>
+ * Solution grids from {@link PuzzleGenerator} are checked three ways: by a generic check with
+ * one boolean array per unit, as boards validated before {@link Geometry}, by the size-specialized
+ * kernel of {@link Geometry#isValidGrid(byte[], int)}, and by the batch path of
+ * {@link Geometry#validateAll(byte[], int, int, boolean[])}. Each is reported in grids per second.
+ * <p>
+ * Usage: {@code ValidationBenchmark [grids] [rounds]}
+ *
+ * @author      Anthony DesArmier
+ * @version     1.0
+ */
+public final class ValidationBenchmark {
+	/** Board sizes measured. */
+	private static final int[] SIZES = {4, 9, 16, 25, 36, 49, 64};
+
+	private ValidationBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args optionally the number of distinct grids per size, then the number of rounds.
+	 */
+	public static void main(String[] args) {
+		int grids = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		for(int size : SIZES) {
+			Geometry geometry = Geometry.of(size);
+			int cellCount = size*size;
+			byte[] packed = new byte[grids*cellCount];
+			PuzzleGenerator generator = new PuzzleGenerator(size, size);
+			for(int k=0; k<grids; k++)
+				System.arraycopy(generator.generateSolution(), 0, packed, k*cellCount, cellCount);
+			boolean[] valid = new boolean[grids];
+			int repeat = Math.max(1, 20_000_000 / grids / cellCount);
+			System.out.printf("%dx%d, %d grids%n", size, size, grids);
+			for(int round=0; round<rounds; round++) {
+				time("generic", grids, repeat, () -> {
+					int passed = 0;
+					for(int k=0; k<grids; k++)
+						if(generic(packed, k*cellCount, size, geometry.getCellDim()))
+							passed++;
+					return passed;
+				});
+				time("kernel", grids, repeat, () -> {
+					int passed = 0;
+					for(int k=0; k<grids; k++)
+						if(geometry.isValidGrid(packed, k*cellCount))
+							passed++;
+					return passed;
+				});
+				time("batch", grids, repeat, () -> geometry.validateAll(packed, 0, grids, valid));
+			}
+		}
+	}
+
+	/** Validation of every grid once; returns the number of valid grids. */
+	private interface Check {
+		int check();
+	}
+
+	/** Times a check repeated over the grids and prints the rate. */
+	private static void time(String name, int grids, int repeat, Check check) {
+		long passed = 0;
+		long start = System.nanoTime();
+		for(int r=0; r<repeat; r++)
+			passed += check.check();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long count = (long)repeat * grids;
+		System.out.printf("  %-8s %12.0f grids/s %10.2f us each (%d valid)%n", name, count / seconds, seconds * 1e6 / count, passed);
+	}
+
+	/** Checks a grid with a boolean array per unit and generic loop bounds. */
+	private static boolean generic(byte[] v, int o, int size, int cellDim) {
+		for(int u=0; u<size; u++) {
+			boolean[] row = new boolean[size+1], col = new boolean[size+1], box = new boolean[size+1];
+			int x0 = (u/cellDim)*cellDim, y0 = (u%cellDim)*cellDim;
+			for(int k=0; k<size; k++) {
+				int r = v[o + u*size + k], c = v[o + k*size + u], b = v[o + (x0 + k/cellDim)*size + y0 + k%cellDim];
+				if(r < 1 || r > size || c < 1 || c > size || b < 1 || b > size || row[r] || col[c] || box[b])
+					return false;
+				row[r] = col[c] = box[b] = true;
+			}
+		}
+		return true;
+	}
+}